@@ -0,0 +1,68 @@
+package com.entreprise.kpi_analysis_Backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration for the background executors (upload jobs, upload parsers and AI analysis)
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+    
+    /**
+     * Bounded executor for asynchronous upload jobs; submissions beyond the queue are rejected
+     */
+    @Bean(name = "uploadJobExecutor")
+    public ThreadPoolTaskExecutor uploadJobExecutor(
+            @Value("${upload.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${upload.jobs.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor running the parser stage of the upload pipeline (one task per upload being processed).
+     * One thread per upload job, plus upload.pipeline.parser-threads for synchronous uploads (capped
+     * to that many by UploadJobService). No queue: a queued parser would leave its writer waiting
+     */
+    @Bean(name = "uploadParserExecutor")
+    public ThreadPoolTaskExecutor uploadParserExecutor(
+            @Value("${upload.pipeline.parser-threads:4}") int parserThreads,
+            @Value("${upload.jobs.max-concurrent:2}") int maxConcurrentJobs) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parserThreads + maxConcurrentJobs);
+        executor.setMaxPoolSize(parserThreads + maxConcurrentJobs);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("upload-parser-");
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Executor draining the analysis outbox, one task per employee. Its thread count bounds the
+     * concurrent Groq calls; the queue is bounded, overflow stays PENDING in the database
+     */
+    @Bean(name = "analysisExecutor")
+    public ThreadPoolTaskExecutor analysisExecutor(
+            @Value("${analysis.worker.threads:4}") int threads,
+            @Value("${analysis.worker.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analysis-");
+        executor.initialize();
+        return executor;
+    }
+}
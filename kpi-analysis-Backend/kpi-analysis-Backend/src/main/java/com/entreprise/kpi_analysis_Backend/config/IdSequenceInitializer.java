@@ -0,0 +1,90 @@
+package com.entreprise.kpi_analysis_Backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Aligns the ID sequences with the existing table contents at startup.
+ *
+ * The entities used IDENTITY columns before switching to pooled sequences; on an
+ * existing database the sequences created by Hibernate start at 1 and would hand
+ * out IDs that are already taken. This moves each sequence past MAX(id), never backwards.
+ *
+ * Runs while the context starts, before the web server takes requests: the entity manager
+ * factory is injected so that Hibernate has created the sequences first. It runs before
+ * KpiPeriodConstraintInitializer, which depends on it.
+ */
+@Component
+public class IdSequenceInitializer implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // Must match the allocationSize of the @SequenceGenerator on each entity
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "employees", "employees_seq",
+            "kpis", "kpis_seq",
+            "kpi_metrics", "kpi_metrics_seq"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    // Unused: only makes Hibernate's schema update run before this bean
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                 EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String product;
+        try {
+            product = JdbcUtils.extractDatabaseMetaData(dataSource,
+                    metaData -> metaData.getDatabaseProductName());
+        } catch (Exception e) {
+            logger.warn("Could not detect database type, ID sequences left unchanged", e);
+            return;
+        }
+
+        for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+            String table = entry.getKey();
+            String sequence = entry.getValue();
+            try {
+                if ("PostgreSQL".equalsIgnoreCase(product)) {
+                    // is_called = false: the next nextval returns this value; past the current block otherwise
+                    jdbcTemplate.queryForObject(String.format(
+                            "SELECT setval('%s', GREATEST(%s, (SELECT last_value FROM %s) + %d), false)",
+                            sequence, firstFreeValue(table), sequence, ALLOCATION_SIZE), Long.class);
+                } else if ("MySQL".equalsIgnoreCase(product)) {
+                    // MySQL has no sequences: Hibernate emulates them with a single-row table whose
+                    // next_val is the value the next call returns
+                    jdbcTemplate.update(String.format(
+                            "UPDATE %s SET next_val = GREATEST(next_val, %s)", sequence, firstFreeValue(table)));
+                }
+            } catch (Exception e) {
+                logger.warn("Could not align sequence {} with table {}: {}", sequence, table, e.getMessage());
+            }
+        }
+        logger.debug("ID sequences aligned for {}", product);
+    }
+
+    /**
+     * Lowest sequence value whose block is free. The pooled optimizer takes the value it reads as
+     * the top of a block and hands out [value - ALLOCATION_SIZE + 1, value], so the value must
+     * exceed MAX(id) by ALLOCATION_SIZE
+     */
+    private static String firstFreeValue(String table) {
+        return String.format("(SELECT COALESCE(MAX(id), 0) + %d FROM %s)", ALLOCATION_SIZE + 1, table);
+    }
+}
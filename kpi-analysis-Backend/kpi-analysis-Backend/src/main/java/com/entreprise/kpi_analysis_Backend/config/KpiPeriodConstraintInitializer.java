@@ -0,0 +1,137 @@
+package com.entreprise.kpi_analysis_Backend.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Migration for the unique constraint uk_kpis_employee_period (one KPI per employee and period).
+ *
+ * ddl-auto=update only logs a warning when it cannot add the constraint, which happens on any
+ * database that already holds duplicate (employee, period) rows; the upsert of the PostgreSQL
+ * bulk load (ON CONFLICT ON CONSTRAINT) would then fail at runtime. At startup, duplicates are
+ * merged into the most recently updated KPI of each group (its metrics and pending analysis
+ * requests are moved over, the other rows deleted) and the constraint is added if missing.
+ *
+ * Runs while the context starts, before the web server takes requests, so no upload can insert
+ * a duplicate between the merge and the ALTER TABLE. After the ID sequences are aligned.
+ */
+@Component
+@DependsOn("idSequenceInitializer")
+public class KpiPeriodConstraintInitializer implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiPeriodConstraintInitializer.class);
+
+    static final String CONSTRAINT_NAME = "uk_kpis_employee_period";
+
+    private static final String FIND_DUPLICATES =
+            "SELECT k.id, k.employee_id, k.period_start, k.period_end, k.updated_at FROM kpis k " +
+            "JOIN (SELECT employee_id, period_start, period_end FROM kpis " +
+            "  GROUP BY employee_id, period_start, period_end HAVING COUNT(*) > 1) d " +
+            "ON d.employee_id = k.employee_id AND d.period_start = k.period_start AND d.period_end = k.period_end " +
+            "ORDER BY k.employee_id, k.period_start, k.period_end, k.id";
+
+    private static final String COUNT_CONSTRAINT =
+            "SELECT COUNT(*) FROM information_schema.table_constraints " +
+            "WHERE lower(table_name) = 'kpis' AND lower(constraint_name) = '" + CONSTRAINT_NAME + "'";
+
+    private static final String ADD_CONSTRAINT =
+            "ALTER TABLE kpis ADD CONSTRAINT " + CONSTRAINT_NAME + " UNIQUE (employee_id, period_start, period_end)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public KpiPeriodConstraintInitializer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                          EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            Integer merged = transactionTemplate.execute(status -> mergeDuplicates());
+            if (merged != null && merged > 0) {
+                // Rows were deleted behind Hibernate's back
+                entityManagerFactory.getCache().evictAll();
+            }
+            Integer constraints = jdbcTemplate.queryForObject(COUNT_CONSTRAINT, Integer.class);
+            if (constraints == null || constraints == 0) {
+                jdbcTemplate.execute(ADD_CONSTRAINT);
+                logger.info("Unique constraint {} added on kpis", CONSTRAINT_NAME);
+            }
+        } catch (Exception e) {
+            logger.error("Could not enforce unique constraint {} on kpis, KPI upserts may fail: {}",
+                    CONSTRAINT_NAME, e.getMessage());
+        }
+    }
+
+    /**
+     * @return Number of duplicate KPIs merged and deleted
+     */
+    private int mergeDuplicates() {
+        Map<List<Object>, List<Row>> groups = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_DUPLICATES, rs -> {
+            Row row = new Row(rs.getLong("id"), rs.getTimestamp("updated_at"));
+            List<Object> key = List.of(rs.getLong("employee_id"), rs.getDate("period_start"), rs.getDate("period_end"));
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        });
+        if (groups.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> moves = new ArrayList<>();
+        List<Object[]> deletions = new ArrayList<>();
+        for (List<Row> group : groups.values()) {
+            Row kept = keptRow(group);
+            for (Row row : group) {
+                if (row != kept) {
+                    moves.add(new Object[]{kept.id, row.id});
+                    deletions.add(new Object[]{row.id});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("UPDATE kpi_metrics SET kpi_id = ? WHERE kpi_id = ?", moves);
+        jdbcTemplate.batchUpdate("UPDATE analysis_requests SET kpi_id = ? WHERE kpi_id = ?", moves);
+        jdbcTemplate.batchUpdate("DELETE FROM kpis WHERE id = ?", deletions);
+        logger.warn("Merged {} duplicate KPI(s) in {} (employee, period) group(s) before adding {}",
+                deletions.size(), groups.size(), CONSTRAINT_NAME);
+        return deletions.size();
+    }
+
+    /**
+     * Most recently updated row of the group (it holds the latest analysis), lowest id on ties
+     */
+    static Row keptRow(List<Row> group) {
+        Row kept = group.get(0);
+        for (Row row : group) {
+            if (row.updatedAt != null && (kept.updatedAt == null || row.updatedAt.after(kept.updatedAt))) {
+                kept = row;
+            }
+        }
+        return kept;
+    }
+
+    static final class Row {
+        final long id;
+        final Timestamp updatedAt;
+
+        Row(long id, Timestamp updatedAt) {
+            this.id = id;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.entreprise.kpi_analysis_Backend.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache (JCache regions backed by Caffeine) for the read-mostly
+ * entities: Employee (also by natural id, email) and KPI, plus the query cache.
+ *
+ * The regions are created here from jpa.cache.* so that sizes and TTLs are set in
+ * application.properties. Statistics are enabled, Spring Boot then publishes them to
+ * Micrometer: /actuator/metrics/hibernate.second.level.cache.requests (tags region, result).
+ */
+@Configuration
+@ConditionalOnProperty(name = "jpa.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheConfig.class);
+
+    // Region names used in the @Cache / @NaturalIdCache annotations of the entities
+    public static final String EMPLOYEES_REGION = "employees";
+    public static final String EMPLOYEES_NATURAL_ID_REGION = "employees-natural-id";
+    public static final String KPIS_REGION = "kpis";
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${jpa.cache.employees.max-entries:50000}") long employeesMax,
+            @Value("${jpa.cache.employees.ttl-minutes:60}") long employeesTtl,
+            @Value("${jpa.cache.kpis.max-entries:20000}") long kpisMax,
+            @Value("${jpa.cache.kpis.ttl-minutes:30}") long kpisTtl,
+            @Value("${jpa.cache.queries.max-entries:1000}") long queriesMax,
+            @Value("${jpa.cache.queries.ttl-minutes:10}") long queriesTtl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        createRegion(cacheManager, EMPLOYEES_REGION, employeesMax, employeesTtl);
+        createRegion(cacheManager, EMPLOYEES_NATURAL_ID_REGION, employeesMax, employeesTtl);
+        createRegion(cacheManager, KPIS_REGION, kpisMax, kpisTtl);
+        createRegion(cacheManager, QUERY_RESULTS_REGION, queriesMax, queriesTtl);
+        // Must outlive every cached query result, so neither bounded nor expired
+        createRegion(cacheManager, UPDATE_TIMESTAMPS_REGION, 0, 0);
+        logger.info("Hibernate second-level cache enabled (employees: {} entries / {} min, KPIs: {} entries / {} min)",
+                employeesMax, employeesTtl, kpisMax, kpisTtl);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put("hibernate.cache.use_second_level_cache", true);
+            properties.put("hibernate.cache.use_query_cache", true);
+            properties.put("hibernate.cache.region.factory_class", "jcache");
+            properties.put("hibernate.javax.cache.cache_manager", hibernateCacheManager);
+            // Regions are created above; anything else would be unbounded
+            properties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            properties.put("hibernate.generate_statistics", true);
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long maxEntries, long ttlMinutes) {
+        if (cacheManager.getCache(name) != null) {
+            cacheManager.destroyCache(name);
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        if (maxEntries > 0) {
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        }
+        if (ttlMinutes > 0) {
+            configuration.setExpireAfterWrite(OptionalLong.of(Duration.ofMinutes(ttlMinutes).toNanos()));
+        }
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
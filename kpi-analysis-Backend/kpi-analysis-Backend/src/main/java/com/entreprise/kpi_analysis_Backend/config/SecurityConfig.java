@@ -31,6 +31,8 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 // Allow all API endpoints without authentication
                 .requestMatchers("/api/**").permitAll()
+                // Health and metrics (LLM cache hit rates, tokens saved)
+                .requestMatchers("/actuator/health", "/actuator/metrics/**").permitAll()
                 // Require authentication for all other requests
                 .anyRequest().authenticated()
             )
@@ -5,15 +5,20 @@ import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * REST Controller for AI Analysis operations
+ * REST Controller for AI Analysis operations.
+ * Endpoints return Mono, so no request thread is held while Groq is generating.
  */
 @RestController
 @RequestMapping("/api/analysis")
@@ -32,45 +37,62 @@ public class AnalysisController {
      * Analyze employee performance
      */
     @GetMapping("/employee/{employeeId}")
-    public ResponseEntity<Map<String, String>> analyzeEmployee(
+    public Mono<ResponseEntity<Map<String, String>>> analyzeEmployee(
             @PathVariable @Min(value = 1, message = "Employee ID must be greater than 0") Long employeeId) {
         logger.debug("Analyzing employee performance for ID: {}", employeeId);
-        String analysis = aiAnalysisService.analyzeEmployeePerformance(employeeId);
-        Map<String, String> response = new HashMap<>();
-        response.put("analysis", analysis);
-        response.put("employeeId", employeeId.toString());
-        logger.info("Analysis completed for employee: {}", employeeId);
-        return ResponseEntity.ok(response);
+        return aiAnalysisService.analyzeEmployeePerformanceAsync(employeeId).map(analysis -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("analysis", analysis);
+            response.put("employeeId", employeeId.toString());
+            logger.info("Analysis completed for employee: {}", employeeId);
+            return ResponseEntity.ok(response);
+        });
+    }
+    
+    /**
+     * Analyze employee performance, streamed over server-sent events as Groq generates it.
+     * "chunk" events carry the text, a final "done" event marks the end (the analysis is then saved).
+     */
+    @GetMapping(value = "/employee/{employeeId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamEmployeeAnalysis(
+            @PathVariable @Min(value = 1, message = "Employee ID must be greater than 0") Long employeeId) {
+        logger.debug("Streaming analysis for employee ID: {}", employeeId);
+        return aiAnalysisService.streamEmployeePerformanceAnalysis(employeeId)
+                .map(chunk -> ServerSentEvent.builder(chunk).event("chunk").build())
+                .concatWith(Mono.fromSupplier(() -> ServerSentEvent.builder(employeeId.toString()).event("done").build()));
     }
     
     /**
      * Get AI recommendations for an employee
      */
     @GetMapping("/employee/{employeeId}/recommendations")
-    public ResponseEntity<Map<String, String>> getRecommendations(
+    public Mono<ResponseEntity<Map<String, String>>> getRecommendations(
             @PathVariable @Min(value = 1, message = "Employee ID must be greater than 0") Long employeeId) {
         logger.debug("Generating recommendations for employee ID: {}", employeeId);
-        String recommendations = aiAnalysisService.generateRecommendations(employeeId);
-        Map<String, String> response = new HashMap<>();
-        response.put("recommendations", recommendations);
-        response.put("employeeId", employeeId.toString());
-        logger.info("Recommendations generated for employee: {}", employeeId);
-        return ResponseEntity.ok(response);
+        return aiAnalysisService.generateRecommendationsAsync(employeeId).map(recommendations -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("recommendations", recommendations);
+            response.put("employeeId", employeeId.toString());
+            logger.info("Recommendations generated for employee: {}", employeeId);
+            return ResponseEntity.ok(response);
+        });
     }
     
     /**
-     * Trigger AI analysis update for a KPI
+     * Trigger AI analysis update for a KPI (skipped when its inputs are unchanged, unless force=true)
      */
     @PostMapping("/kpi/{kpiId}/analyze")
-    public ResponseEntity<Map<String, String>> analyzeKPI(
-            @PathVariable @Min(value = 1, message = "KPI ID must be greater than 0") Long kpiId) {
+    public Mono<ResponseEntity<Map<String, String>>> analyzeKPI(
+            @PathVariable @Min(value = 1, message = "KPI ID must be greater than 0") Long kpiId,
+            @RequestParam(defaultValue = "false") boolean force) {
         logger.debug("Triggering AI analysis for KPI ID: {}", kpiId);
-        aiAnalysisService.updateKPIWithAnalysis(kpiId);
-        Map<String, String> response = new HashMap<>();
-        response.put("message", "KPI analysis updated successfully");
-        response.put("kpiId", kpiId.toString());
-        logger.info("AI analysis completed for KPI: {}", kpiId);
-        return ResponseEntity.ok(response);
+        return aiAnalysisService.updateKPIWithAnalysisAsync(kpiId, force).then(Mono.fromSupplier(() -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "KPI analysis updated successfully");
+            response.put("kpiId", kpiId.toString());
+            logger.info("AI analysis completed for KPI: {}", kpiId);
+            return ResponseEntity.ok(response);
+        }));
     }
 }
 
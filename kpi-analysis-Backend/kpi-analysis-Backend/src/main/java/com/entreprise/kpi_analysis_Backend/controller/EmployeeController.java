@@ -1,18 +1,21 @@
 package com.entreprise.kpi_analysis_Backend.controller;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
 import com.entreprise.kpi_analysis_Backend.dto.EmployeeDTO;
 import com.entreprise.kpi_analysis_Backend.service.EmployeeService;
+import com.entreprise.kpi_analysis_Backend.service.ResourceVersion;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * REST Controller for Employee operations
@@ -30,21 +33,44 @@ public class EmployeeController {
         this.employeeService = employeeService;
     }
     
+    /**
+     * Keyset-paginated list: pass the nextCursor of a page as cursor to get the next one.
+     * Conditional: 304 when If-None-Match matches the current ETag of the list
+     */
     @GetMapping
-    public ResponseEntity<List<EmployeeDTO>> getAllEmployees() {
-        logger.debug("Fetching all employees");
-        List<EmployeeDTO> employees = employeeService.getAllEmployees();
-        logger.info("Retrieved {} employees", employees.size());
-        return ResponseEntity.ok(employees);
+    public ResponseEntity<CursorPage<EmployeeDTO>> getAllEmployees(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 500, message = "Size must not exceed 500") int size,
+            @RequestParam(required = false) String department,
+            WebRequest request) {
+        logger.debug("Fetching employees page (cursor {}, size {}, department {})", cursor, size, department);
+        ResourceVersion version = employeeService.getEmployeesVersion(cursor, size, department);
+        if (request.checkNotModified(version.getEtag())) {
+            logger.debug("Employees page not modified");
+            return null;
+        }
+        CursorPage<EmployeeDTO> page = employeeService.getEmployeesPage(cursor, size, department);
+        logger.info("Retrieved {} employees", page.getSize());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(page);
     }
     
+    /**
+     * Conditional on If-None-Match / If-Modified-Since (ETag and Last-Modified from updatedAt)
+     */
     @GetMapping("/{id}")
     public ResponseEntity<EmployeeDTO> getEmployeeById(
-            @PathVariable @Min(value = 1, message = "ID must be greater than 0") Long id) {
+            @PathVariable @Min(value = 1, message = "ID must be greater than 0") Long id,
+            WebRequest request) {
         logger.debug("Fetching employee with ID: {}", id);
+        ResourceVersion version = employeeService.getEmployeeVersion(id);
+        if (request.checkNotModified(version.getEtag(), version.getLastModifiedMillis())) {
+            logger.debug("Employee {} not modified", id);
+            return null;
+        }
         EmployeeDTO employee = employeeService.getEmployeeById(id);
         logger.info("Retrieved employee: {}", id);
-        return ResponseEntity.ok(employee);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(employee);
     }
     
     @PostMapping
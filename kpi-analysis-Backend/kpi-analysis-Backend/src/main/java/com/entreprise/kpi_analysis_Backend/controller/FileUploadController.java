@@ -1,15 +1,20 @@
 package com.entreprise.kpi_analysis_Backend.controller;
 
 import com.entreprise.kpi_analysis_Backend.dto.FileUploadResponse;
-import com.entreprise.kpi_analysis_Backend.service.FileUploadService;
+import com.entreprise.kpi_analysis_Backend.dto.UploadJobStatus;
+import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
+import com.entreprise.kpi_analysis_Backend.service.UploadJobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.net.URI;
 import java.time.LocalDate;
 
 /**
@@ -20,11 +25,11 @@ import java.time.LocalDate;
 public class FileUploadController {
     
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
-    private final FileUploadService fileUploadService;
+    private final UploadJobService uploadJobService;
     
     @Autowired
-    public FileUploadController(FileUploadService fileUploadService) {
-        this.fileUploadService = fileUploadService;
+    public FileUploadController(UploadJobService uploadJobService) {
+        this.uploadJobService = uploadJobService;
     }
     
     /**
@@ -33,15 +38,17 @@ public class FileUploadController {
      * @param file The uploaded file (Excel or CSV)
      * @param periodStart Start date of the KPI period (format: yyyy-MM-dd)
      * @param periodEnd End date of the KPI period (format: yyyy-MM-dd)
-     * @return FileUploadResponse with processing results
+     * @param async When true, the file is queued and a job status (202) is returned immediately
+     * @return FileUploadResponse with processing results, or UploadJobStatus in async mode
      */
     @PostMapping("/kpi-file")
-    public ResponseEntity<FileUploadResponse> uploadKPIFile(
+    public ResponseEntity<?> uploadKPIFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "periodStart", required = false) 
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodStart,
             @RequestParam(value = "periodEnd", required = false) 
-            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodEnd) {
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodEnd,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         
         logger.info("Received file upload request: {} ({} bytes)", 
             file.getOriginalFilename(), file.getSize());
@@ -67,8 +74,27 @@ public class FileUploadController {
             return ResponseEntity.badRequest().body(response);
         }
         
+        if (async) {
+            try {
+                UploadJobStatus job = uploadJobService.submit(file, periodStart, periodEnd);
+                return ResponseEntity.accepted()
+                        .location(URI.create("/api/upload/jobs/" + job.getJobId()))
+                        .body(job);
+            } catch (TaskRejectedException e) {
+                logger.warn("Upload job queue is full, rejecting file {}", file.getOriginalFilename());
+                FileUploadResponse response = new FileUploadResponse(false, 
+                    "Trop de fichiers en cours de traitement, veuillez réessayer plus tard");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+            } catch (Exception e) {
+                logger.error("Error storing uploaded file", e);
+                FileUploadResponse response = new FileUploadResponse(false, 
+                    "Erreur lors de l'enregistrement du fichier: " + e.getMessage());
+                return ResponseEntity.internalServerError().body(response);
+            }
+        }
+        
         try {
-            FileUploadResponse response = fileUploadService.processFile(file, periodStart, periodEnd);
+            FileUploadResponse response = uploadJobService.processNow(file, periodStart, periodEnd);
             
             if (response.isSuccess()) {
                 logger.info("File processed successfully: {}", response.getMessage());
@@ -78,6 +104,11 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(response);
             }
             
+        } catch (TaskRejectedException e) {
+            logger.warn("No parser thread available, rejecting file {}", file.getOriginalFilename());
+            FileUploadResponse response = new FileUploadResponse(false, 
+                "Trop de fichiers en cours de traitement, veuillez réessayer plus tard");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } catch (Exception e) {
             logger.error("Error processing uploaded file", e);
             FileUploadResponse response = new FileUploadResponse(false, 
@@ -85,5 +116,15 @@ public class FileUploadController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+    
+    /**
+     * Get the progress of an asynchronous upload job, including its final result once finished
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<UploadJobStatus> getUploadJob(@PathVariable String jobId) {
+        logger.debug("Fetching upload job: {}", jobId);
+        UploadJobStatus job = uploadJobService.getJob(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload job not found with id: " + jobId));
+        return ResponseEntity.ok(job);
+    }
 }
-
@@ -1,17 +1,25 @@
 package com.entreprise.kpi_analysis_Backend.controller;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
+import com.entreprise.kpi_analysis_Backend.dto.KPIAnalysisDTO;
 import com.entreprise.kpi_analysis_Backend.dto.KPIDTO;
 import com.entreprise.kpi_analysis_Backend.service.KPIService;
+import com.entreprise.kpi_analysis_Backend.service.ResourceVersion;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -30,38 +38,92 @@ public class KPIController {
         this.kpiService = kpiService;
     }
     
+    /**
+     * Keyset-paginated list, optionally for one employee and periods within [from, to] (ISO dates).
+     * Conditional: 304 when If-None-Match matches the current ETag of the filtered list
+     */
     @GetMapping
-    public ResponseEntity<List<KPIDTO>> getAllKPIs() {
-        logger.debug("Fetching all KPIs");
-        List<KPIDTO> kpis = kpiService.getAllKPIs();
-        logger.info("Retrieved {} KPIs", kpis.size());
-        return ResponseEntity.ok(kpis);
+    public ResponseEntity<CursorPage<KPIDTO>> getAllKPIs(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 500, message = "Size must not exceed 500") int size,
+            @RequestParam(required = false) Long employeeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest request) {
+        logger.debug("Fetching KPIs page (cursor {}, size {}, employee {}, period {} - {})",
+                cursor, size, employeeId, from, to);
+        ResourceVersion version = kpiService.getKPIsVersion(cursor, size, employeeId, from, to);
+        if (request.checkNotModified(version.getEtag())) {
+            logger.debug("KPIs page not modified");
+            return null;
+        }
+        CursorPage<KPIDTO> page = kpiService.getKPIsPage(cursor, size, employeeId, from, to);
+        logger.info("Retrieved {} KPIs", page.getSize());
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(page);
     }
     
+    /**
+     * Conditional on If-None-Match (see KPIService.getKPIVersion)
+     */
     @GetMapping("/{id}")
     public ResponseEntity<KPIDTO> getKPIById(
-            @PathVariable @Min(value = 1, message = "ID must be greater than 0") Long id) {
+            @PathVariable @Min(value = 1, message = "ID must be greater than 0") Long id,
+            WebRequest request) {
         logger.debug("Fetching KPI with ID: {}", id);
+        if (request.checkNotModified(kpiService.getKPIVersion(id).getEtag())) {
+            logger.debug("KPI {} not modified", id);
+            return null;
+        }
         KPIDTO kpi = kpiService.getKPIById(id);
         logger.info("Retrieved KPI: {}", id);
-        return ResponseEntity.ok(kpi);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(kpi);
+    }
+    
+    /**
+     * Analysis and recommendations of one KPI (the list endpoints leave them out)
+     */
+    @GetMapping("/{id}/analysis")
+    public ResponseEntity<KPIAnalysisDTO> getKPIAnalysis(
+            @PathVariable @Min(value = 1, message = "ID must be greater than 0") Long id,
+            WebRequest request) {
+        logger.debug("Fetching analysis of KPI with ID: {}", id);
+        if (request.checkNotModified(kpiService.getKPIVersion(id).getEtag())) {
+            logger.debug("Analysis of KPI {} not modified", id);
+            return null;
+        }
+        KPIAnalysisDTO analysis = kpiService.getKPIAnalysis(id);
+        logger.info("Retrieved analysis of KPI: {}", id);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(analysis);
     }
     
     @GetMapping("/employee/{employeeId}")
     public ResponseEntity<List<KPIDTO>> getKPIsByEmployeeId(
-            @PathVariable @Min(value = 1, message = "Employee ID must be greater than 0") Long employeeId) {
+            @PathVariable @Min(value = 1, message = "Employee ID must be greater than 0") Long employeeId,
+            WebRequest request) {
         logger.debug("Fetching KPIs for employee ID: {}", employeeId);
+        if (request.checkNotModified(kpiService.getKPIsByEmployeeVersion(employeeId).getEtag())) {
+            logger.debug("KPIs of employee {} not modified", employeeId);
+            return null;
+        }
         List<KPIDTO> kpis = kpiService.getKPIsByEmployeeId(employeeId);
         logger.info("Retrieved {} KPIs for employee: {}", kpis.size(), employeeId);
-        return ResponseEntity.ok(kpis);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(kpis);
     }
     
+    /**
+     * Upsert on (employee, period): 201 when the KPI is created, 200 when an existing one is updated
+     */
     @PostMapping
     public ResponseEntity<KPIDTO> createKPI(@Valid @RequestBody KPIDTO kpiDTO) {
         logger.debug("Creating new KPI for employee ID: {}", kpiDTO.getEmployeeId());
-        KPIDTO createdKPI = kpiService.createKPI(kpiDTO);
-        logger.info("Created KPI with ID: {}", createdKPI.getId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdKPI);
+        KPIService.UpsertResult result = kpiService.createKPI(kpiDTO);
+        if (!result.isCreated()) {
+            logger.info("Updated existing KPI with ID: {}", result.getKpi().getId());
+            return ResponseEntity.ok(result.getKpi());
+        }
+        logger.info("Created KPI with ID: {}", result.getKpi().getId());
+        return ResponseEntity.status(HttpStatus.CREATED).body(result.getKpi());
     }
     
     @PutMapping("/{id}")
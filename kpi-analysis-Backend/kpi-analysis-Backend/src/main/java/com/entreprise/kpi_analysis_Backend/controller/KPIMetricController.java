@@ -1,8 +1,11 @@
 package com.entreprise.kpi_analysis_Backend.controller;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
 import com.entreprise.kpi_analysis_Backend.dto.KPIMetricDTO;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
 import com.entreprise.kpi_analysis_Backend.service.KPIMetricService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,12 +33,20 @@ public class KPIMetricController {
         this.kpiMetricService = kpiMetricService;
     }
     
+    /**
+     * Keyset-paginated list, optionally for one KPI and one metric type
+     */
     @GetMapping
-    public ResponseEntity<List<KPIMetricDTO>> getAllKPIMetrics() {
-        logger.debug("Fetching all KPI metrics");
-        List<KPIMetricDTO> metrics = kpiMetricService.getAllKPIMetrics();
-        logger.info("Retrieved {} KPI metrics", metrics.size());
-        return ResponseEntity.ok(metrics);
+    public ResponseEntity<CursorPage<KPIMetricDTO>> getAllKPIMetrics(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 500, message = "Size must not exceed 500") int size,
+            @RequestParam(required = false) Long kpiId,
+            @RequestParam(required = false) KPIMetric.MetricType metricType) {
+        logger.debug("Fetching KPI metrics page (cursor {}, size {}, KPI {}, type {})", cursor, size, kpiId, metricType);
+        CursorPage<KPIMetricDTO> page = kpiMetricService.getKPIMetricsPage(cursor, size, kpiId, metricType);
+        logger.info("Retrieved {} KPI metrics", page.getSize());
+        return ResponseEntity.ok(page);
     }
     
     @GetMapping("/{id}")
@@ -1,5 +1,6 @@
 package com.entreprise.kpi_analysis_Backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
@@ -8,6 +9,7 @@ public class GroqRequest {
     private List<Message> messages;
     private double temperature = 0.7;
     private int maxTokens = 1000;
+    private Boolean stream;
     
     public GroqRequest() {}
     
@@ -50,6 +52,18 @@ public class GroqRequest {
         this.maxTokens = maxTokens;
     }
     
+    /**
+     * true for a server-sent events response (chat.completion.chunk); omitted from the JSON when null
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getStream() {
+        return stream;
+    }
+    
+    public void setStream(Boolean stream) {
+        this.stream = stream;
+    }
+    
     public static class Message {
         private String role;
         private String content;
@@ -0,0 +1,56 @@
+package com.entreprise.kpi_analysis_Backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Analysis texts of one KPI, fetched on demand (the list endpoints do not carry them)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KPIAnalysisDTO {
+
+    private Long kpiId;
+
+    private String aiAnalysis;
+
+    private String aiRecommendations;
+
+    // True when the metrics or employee data changed since the analysis was generated
+    private Boolean analysisStale;
+
+    // Explicit getters and setters (Lombok should generate these, but adding for compatibility)
+    public Long getKpiId() {
+        return kpiId;
+    }
+
+    public void setKpiId(Long kpiId) {
+        this.kpiId = kpiId;
+    }
+
+    public String getAiAnalysis() {
+        return aiAnalysis;
+    }
+
+    public void setAiAnalysis(String aiAnalysis) {
+        this.aiAnalysis = aiAnalysis;
+    }
+
+    public String getAiRecommendations() {
+        return aiRecommendations;
+    }
+
+    public void setAiRecommendations(String aiRecommendations) {
+        this.aiRecommendations = aiRecommendations;
+    }
+
+    public Boolean getAnalysisStale() {
+        return analysisStale;
+    }
+
+    public void setAnalysisStale(Boolean analysisStale) {
+        this.analysisStale = analysisStale;
+    }
+}
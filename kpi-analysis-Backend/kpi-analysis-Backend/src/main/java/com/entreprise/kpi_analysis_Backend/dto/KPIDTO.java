@@ -29,6 +29,12 @@ public class KPIDTO {
 
     private String aiRecommendations;
 
+    // True when the metrics or employee data changed since the analysis was generated (null when not computed)
+    private Boolean analysisStale;
+
+    // Whether an analysis exists; list views leave aiAnalysis/aiRecommendations null (see GET /api/kpis/{id}/analysis)
+    private Boolean hasAnalysis;
+
     // Explicit getters and setters (Lombok should generate these, but adding for compatibility)
     public Long getId() {
         return id;
@@ -85,4 +91,20 @@ public class KPIDTO {
     public void setAiRecommendations(String aiRecommendations) {
         this.aiRecommendations = aiRecommendations;
     }
-}
\ No newline at end of file
+
+    public Boolean getAnalysisStale() {
+        return analysisStale;
+    }
+
+    public void setAnalysisStale(Boolean analysisStale) {
+        this.analysisStale = analysisStale;
+    }
+
+    public Boolean getHasAnalysis() {
+        return hasAnalysis;
+    }
+
+    public void setHasAnalysis(Boolean hasAnalysis) {
+        this.hasAnalysis = hasAnalysis;
+    }
+}
@@ -1,22 +1,32 @@
 package com.entreprise.kpi_analysis_Backend.entity;
 
+import com.entreprise.kpi_analysis_Backend.config.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "employees")
+@Table(name = "employees", indexes = @Index(name = "idx_employees_department", columnList = "department, id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.EMPLOYEES_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.EMPLOYEES_NATURAL_ID_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Employee {
     
+    // Pooled sequence instead of IDENTITY so inserts can be batched (see IdSequenceInitializer)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "employees_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -25,6 +35,8 @@ public class Employee {
     @Column(nullable = false)
     private String lastName;
     
+    // Natural id: EmployeeRepository.findByEmail resolves it through the natural-id cache
+    @NaturalId(mutable = true)
     @Column(unique = true, nullable = false)
     private String email;
     
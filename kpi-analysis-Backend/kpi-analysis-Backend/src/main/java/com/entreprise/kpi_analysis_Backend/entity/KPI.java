@@ -1,23 +1,37 @@
 package com.entreprise.kpi_analysis_Backend.entity;
 
+import com.entreprise.kpi_analysis_Backend.config.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "kpis")
+@Table(name = "kpis", uniqueConstraints = @UniqueConstraint(
+        name = "uk_kpis_employee_period",
+        columnNames = {"employee_id", "period_start", "period_end"}),
+        indexes = {
+                @Index(name = "idx_kpis_period", columnList = "period_start, period_end"),
+                // Keyset pagination (ORDER BY id) filtered by employee or by period start
+                @Index(name = "idx_kpis_employee", columnList = "employee_id, id"),
+                @Index(name = "idx_kpis_period_start", columnList = "period_start, id")})
+// Metrics collection not cached: the analysis path fetches it with the KPIs in one query
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.KPIS_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class KPI {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kpi_seq")
+    @SequenceGenerator(name = "kpi_seq", sequenceName = "kpis_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -42,6 +56,10 @@ public class KPI {
     @Column(name = "ai_recommendations", columnDefinition = "TEXT")
     private String aiRecommendations;
     
+    // Fingerprint of the inputs the stored analysis was generated from (see AnalysisFingerprint)
+    @Column(name = "analysis_fingerprint", length = 64)
+    private String analysisFingerprint;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -124,6 +142,14 @@ public class KPI {
         this.aiRecommendations = aiRecommendations;
     }
     
+    public String getAnalysisFingerprint() {
+        return analysisFingerprint;
+    }
+    
+    public void setAnalysisFingerprint(String analysisFingerprint) {
+        this.analysisFingerprint = analysisFingerprint;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -8,21 +8,24 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "kpi_metrics")
+@Table(name = "kpi_metrics", indexes = {
+        @Index(name = "idx_kpi_metrics_kpi_id", columnList = "kpi_id, id"),
+        @Index(name = "idx_kpi_metrics_type", columnList = "metric_type, id")})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class KPIMetric {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kpi_metric_seq")
+    @SequenceGenerator(name = "kpi_metric_seq", sequenceName = "kpi_metrics_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "kpi_id", nullable = false)
     private KPI kpi;
     
-    @Column(nullable = false, length = 50)
+    @Column(name = "metric_type", nullable = false, length = 50)
     @Enumerated(EnumType.STRING)
     private MetricType metricType;
     
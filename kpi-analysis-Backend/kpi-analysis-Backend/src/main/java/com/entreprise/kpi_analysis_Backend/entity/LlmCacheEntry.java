@@ -0,0 +1,83 @@
+package com.entreprise.kpi_analysis_Backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent tier of the LLM response cache, keyed by the SHA-256 of the request
+ */
+@Entity
+@Table(name = "llm_response_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmCacheEntry {
+    
+    // SHA-256 of model, prompts, temperature and max tokens
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+    
+    @Column(nullable = false)
+    private String model;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+    
+    // Tokens the cached call consumed, i.e. saved by each hit
+    @Column(name = "total_tokens")
+    private Integer totalTokens;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Explicit getters and setters (Lombok should generate these, but adding for compatibility)
+    public String getCacheKey() {
+        return cacheKey;
+    }
+    
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+    
+    public String getModel() {
+        return model;
+    }
+    
+    public void setModel(String model) {
+        this.model = model;
+    }
+    
+    public String getContent() {
+        return content;
+    }
+    
+    public void setContent(String content) {
+        this.content = content;
+    }
+    
+    public Integer getTotalTokens() {
+        return totalTokens;
+    }
+    
+    public void setTotalTokens(Integer totalTokens) {
+        this.totalTokens = totalTokens;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,143 @@
+package com.entreprise.kpi_analysis_Backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a chunked file import, used to resume an interrupted upload of the same file
+ */
+@Entity
+@Table(name = "upload_checkpoints", uniqueConstraints = @UniqueConstraint(
+        name = "uk_upload_checkpoints_file_period",
+        columnNames = {"file_hash", "period_start", "period_end"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // SHA-256 of the file content
+    @Column(name = "file_hash", nullable = false, length = 64)
+    private String fileHash;
+    
+    @Column(name = "file_name")
+    private String fileName;
+    
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+    
+    @Column(name = "period_end", nullable = false)
+    private LocalDate periodEnd;
+    
+    // Number of data rows (after the header) already committed
+    @Column(name = "last_committed_row", nullable = false)
+    private long lastCommittedRow;
+    
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    public enum Status {
+        IN_PROGRESS,
+        FAILED,
+        COMPLETED
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    // Explicit getters and setters (Lombok should generate these, but adding for compatibility)
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getFileHash() {
+        return fileHash;
+    }
+    
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+    
+    public String getFileName() {
+        return fileName;
+    }
+    
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+    
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+    
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+    
+    public LocalDate getPeriodEnd() {
+        return periodEnd;
+    }
+    
+    public void setPeriodEnd(LocalDate periodEnd) {
+        this.periodEnd = periodEnd;
+    }
+    
+    public long getLastCommittedRow() {
+        return lastCommittedRow;
+    }
+    
+    public void setLastCommittedRow(long lastCommittedRow) {
+        this.lastCommittedRow = lastCommittedRow;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.entreprise.kpi_analysis_Backend.exception;
+
+/**
+ * Another import of the same file for the same period holds its checkpoint
+ */
+public class UploadInProgressException extends RuntimeException {
+    
+    public UploadInProgressException(String message) {
+        super(message);
+    }
+}
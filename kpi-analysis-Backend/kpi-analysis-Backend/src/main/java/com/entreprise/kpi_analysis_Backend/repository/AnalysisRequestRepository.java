@@ -0,0 +1,54 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AnalysisRequestRepository extends JpaRepository<AnalysisRequest, Long> {
+    List<AnalysisRequest> findByStatusOrderByIdAsc(AnalysisRequest.Status status, Pageable pageable);
+    
+    @Query("SELECT r.kpiId FROM AnalysisRequest r WHERE r.status = :status AND r.kpiId IN :kpiIds")
+    List<Long> findKpiIdsByStatus(@Param("status") AnalysisRequest.Status status,
+                                  @Param("kpiIds") Collection<Long> kpiIds);
+    
+    // Conditional update: returns 1 only for the worker that moved the request out of the expected status
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisRequest r SET r.status = :to, r.updatedAt = :now WHERE r.id = :id AND r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") AnalysisRequest.Status from,
+                   @Param("to") AnalysisRequest.Status to, @Param("now") LocalDateTime now);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisRequest r SET r.status = :status, r.attempts = :attempts, r.lastError = :lastError, " +
+           "r.updatedAt = :now WHERE r.id = :id")
+    void updateResult(@Param("id") Long id, @Param("status") AnalysisRequest.Status status,
+                      @Param("attempts") int attempts, @Param("lastError") String lastError,
+                      @Param("now") LocalDateTime now);
+    
+    // Heartbeat of requests held by a worker (queued in its executor or running): not stale
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisRequest r SET r.updatedAt = :now WHERE r.id IN :ids " +
+           "AND r.status = com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest.Status.PROCESSING")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Requests left in PROCESSING by a worker that stopped (crash, shutdown)
+    @Transactional
+    @Modifying
+    @Query("UPDATE AnalysisRequest r " +
+           "SET r.status = com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest.Status.PENDING, r.updatedAt = :now " +
+           "WHERE r.status = com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest.Status.PROCESSING " +
+           "AND r.updatedAt < :before")
+    int requeueStale(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,11 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+/**
+ * Projection with the columns used to match uploaded rows to existing employees
+ */
+public interface EmployeeIdentity {
+    Long getId();
+    String getEmail();
+    String getFirstName();
+    String getLastName();
+}
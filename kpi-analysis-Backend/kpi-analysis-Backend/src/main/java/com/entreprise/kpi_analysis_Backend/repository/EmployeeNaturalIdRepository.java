@@ -0,0 +1,12 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+
+import java.util.Optional;
+
+/**
+ * Lookups by the employee natural id (email), served from the natural-id cache when enabled
+ */
+public interface EmployeeNaturalIdRepository {
+    Optional<Employee> findByEmail(String email);
+}
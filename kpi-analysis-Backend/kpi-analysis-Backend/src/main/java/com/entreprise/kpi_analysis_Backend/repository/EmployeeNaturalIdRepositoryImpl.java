@@ -0,0 +1,25 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+/**
+ * Resolves the email through Hibernate's natural-id API rather than a query:
+ * email → id comes from the employees-natural-id region, the entity from the employees region
+ */
+public class EmployeeNaturalIdRepositoryImpl implements EmployeeNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Employee> findByEmail(String email) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Employee.class)
+                .loadOptional(email);
+    }
+}
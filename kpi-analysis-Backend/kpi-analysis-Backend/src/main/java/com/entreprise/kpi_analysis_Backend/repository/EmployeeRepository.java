@@ -1,12 +1,60 @@
 package com.entreprise.kpi_analysis_Backend.repository;
 
 import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.List;
 
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
-    Optional<Employee> findByEmail(String email);
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeNaturalIdRepository {
+    
+    @Query("SELECT e.id AS id, e.email AS email, e.firstName AS firstName, e.lastName AS lastName FROM Employee e ORDER BY e.id")
+    List<EmployeeIdentity> findAllIdentities();
+    
+    /**
+     * Keyset page: ids after the cursor, optionally one department. One query per case: an
+     * "IS NULL OR" filter would keep the planner from using the index
+     */
+    default List<Employee> findPage(long afterId, String department, Pageable pageable) {
+        return department != null
+                ? findPageByDepartment(afterId, department, pageable)
+                : findPage(afterId, pageable);
+    }
+    
+    @Query("SELECT e FROM Employee e WHERE e.id > :afterId ORDER BY e.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Employee> findPage(@Param("afterId") long afterId, Pageable pageable);
+    
+    // Index idx_employees_department (department, id)
+    @Query("SELECT e FROM Employee e WHERE e.department = :department AND e.id > :afterId ORDER BY e.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Employee> findPageByDepartment(@Param("afterId") long afterId, @Param("department") String department,
+                                        Pageable pageable);
+    
+    @Query("SELECT count(e) AS count, max(e.id) AS maxId, max(e.updatedAt) AS lastModified " +
+           "FROM Employee e WHERE e.id = :id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStampById(@Param("id") Long id);
+    
+    /**
+     * Version of the list filtered like findPage (the cursor only selects a window of it)
+     */
+    default VersionStamp findVersionStamp(String department) {
+        return department != null ? findVersionStampByDepartment(department) : findVersionStamp();
+    }
+    
+    @Query("SELECT count(e) AS count, max(e.id) AS maxId, max(e.updatedAt) AS lastModified FROM Employee e")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStamp();
+    
+    @Query("SELECT count(e) AS count, max(e.id) AS maxId, max(e.updatedAt) AS lastModified " +
+           "FROM Employee e WHERE e.department = :department")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStampByDepartment(@Param("department") String department);
 }
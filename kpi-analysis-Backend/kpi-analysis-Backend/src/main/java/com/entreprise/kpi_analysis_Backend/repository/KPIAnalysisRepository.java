@@ -0,0 +1,23 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes of the AI analysis of one KPI, through the managed entity so that only its entry
+ * of the kpis cache region is replaced (a bulk update query would empty the whole region)
+ */
+public interface KPIAnalysisRepository {
+    
+    /**
+     * @return 1 when the KPI was updated, 0 when it no longer exists
+     */
+    int updateAnalysis(Long id, String analysis, String recommendations, String fingerprint,
+                       Double overallScore, LocalDateTime now);
+    
+    /**
+     * The fingerprint is cleared: the recommendations stored with it describe the previous analysis
+     *
+     * @return 1 when the KPI was updated, 0 when it no longer exists
+     */
+    int updateStreamedAnalysis(Long id, String analysis, LocalDateTime now);
+}
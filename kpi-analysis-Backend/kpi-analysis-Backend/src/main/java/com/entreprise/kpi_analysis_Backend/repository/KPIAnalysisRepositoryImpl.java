@@ -0,0 +1,47 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Loads the KPI (usually from the kpis region) and lets dirty checking write it back:
+ * the READ_WRITE strategy then updates that single cache entry on commit
+ */
+public class KPIAnalysisRepositoryImpl implements KPIAnalysisRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateAnalysis(Long id, String analysis, String recommendations, String fingerprint,
+                              Double overallScore, LocalDateTime now) {
+        KPI kpi = entityManager.find(KPI.class, id);
+        if (kpi == null) {
+            return 0;
+        }
+        kpi.setAiAnalysis(analysis);
+        kpi.setAiRecommendations(recommendations);
+        kpi.setAnalysisFingerprint(fingerprint);
+        kpi.setOverallScore(overallScore);
+        kpi.setUpdatedAt(now);
+        return 1;
+    }
+
+    @Override
+    @Transactional
+    public int updateStreamedAnalysis(Long id, String analysis, LocalDateTime now) {
+        KPI kpi = entityManager.find(KPI.class, id);
+        if (kpi == null) {
+            return 0;
+        }
+        kpi.setAiAnalysis(analysis);
+        kpi.setAnalysisFingerprint(null);
+        kpi.setUpdatedAt(now);
+        return 1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+/**
+ * Projection mapping a KPI ID to its employee, used to prefetch the KPIs of a period
+ */
+public interface KPIKey {
+    Long getId();
+    Long getEmployeeId();
+}
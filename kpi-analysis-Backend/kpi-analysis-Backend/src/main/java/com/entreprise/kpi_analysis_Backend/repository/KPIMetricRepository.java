@@ -1,12 +1,51 @@
 package com.entreprise.kpi_analysis_Backend.repository;
 
 import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface KPIMetricRepository extends JpaRepository<KPIMetric, Long> {
     List<KPIMetric> findByKpiId(Long kpiId);
+    
+    // All metrics of an employee's KPIs in one query
+    List<KPIMetric> findByKpiEmployeeId(Long employeeId);
+    
+    /**
+     * Keyset page: ids after the cursor, optionally one KPI and one metric type. No "IS NULL OR"
+     * filter (it keeps the planner from using the indexes): one query per driving filter, and
+     * the type is matched against all types when none is given
+     */
+    default List<KPIMetric> findPage(long afterId, Long kpiId, KPIMetric.MetricType metricType, Pageable pageable) {
+        Collection<KPIMetric.MetricType> types = metricType != null
+                ? List.of(metricType) : List.of(KPIMetric.MetricType.values());
+        return kpiId != null
+                ? findPageByKpi(afterId, kpiId, types, pageable)
+                : findPageByType(afterId, types, pageable);
+    }
+    
+    // Index idx_kpi_metrics_kpi_id (kpi_id, id)
+    @Query("SELECT m FROM KPIMetric m WHERE m.kpi.id = :kpiId AND m.id > :afterId " +
+           "AND m.metricType IN :types ORDER BY m.id")
+    List<KPIMetric> findPageByKpi(@Param("afterId") long afterId, @Param("kpiId") Long kpiId,
+                                  @Param("types") Collection<KPIMetric.MetricType> types, Pageable pageable);
+    
+    // Primary key, or index idx_kpi_metrics_type (metric_type, id) for a single type
+    @Query("SELECT m FROM KPIMetric m WHERE m.id > :afterId AND m.metricType IN :types ORDER BY m.id")
+    List<KPIMetric> findPageByType(@Param("afterId") long afterId,
+                                   @Param("types") Collection<KPIMetric.MetricType> types, Pageable pageable);
+    
+    // Metrics have no updatedAt: an edited metric touches its KPI instead (see KPIMetricService)
+    @Query("SELECT count(m) AS count, max(m.id) AS maxId, max(m.createdAt) AS lastModified " +
+           "FROM KPIMetric m WHERE m.kpi.employee.id = :employeeId")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStampByEmployeeId(@Param("employeeId") Long employeeId);
 }
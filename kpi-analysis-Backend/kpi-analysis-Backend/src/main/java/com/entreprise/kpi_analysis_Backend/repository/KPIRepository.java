@@ -1,15 +1,99 @@
 package com.entreprise.kpi_analysis_Backend.repository;
 
 import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface KPIRepository extends JpaRepository<KPI, Long> {
+public interface KPIRepository extends JpaRepository<KPI, Long>, KPIAnalysisRepository {
+    String SUMMARY_COLUMNS = "k.id AS id, k.employee.id AS employeeId, k.periodStart AS periodStart, " +
+            "k.periodEnd AS periodEnd, k.overallScore AS overallScore, k.analysisFingerprint AS analysisFingerprint, " +
+            "CASE WHEN k.aiAnalysis IS NOT NULL THEN true ELSE false END AS hasAnalysis";
+    
     List<KPI> findByEmployeeId(Long employeeId);
     List<KPI> findByEmployeeIdAndPeriodStartBetween(Long employeeId, LocalDate start, LocalDate end);
     List<KPI> findByPeriodStartAndPeriodEnd(LocalDate periodStart, LocalDate periodEnd);
+    
+    // Backed by the unique constraint uk_kpis_employee_period
+    Optional<KPI> findByEmployeeIdAndPeriodStartAndPeriodEnd(Long employeeId, LocalDate periodStart, LocalDate periodEnd);
+    
+    @Query("SELECT k.id AS id, k.employee.id AS employeeId FROM KPI k " +
+           "WHERE k.periodStart = :periodStart AND k.periodEnd = :periodEnd")
+    List<KPIKey> findKeysByPeriod(@Param("periodStart") LocalDate periodStart, @Param("periodEnd") LocalDate periodEnd);
+    
+    // Bounds standing for an open period filter, so the queries need no "IS NULL OR" branches
+    // (which keep the planner from using the indexes). Within the DATE range of PostgreSQL and MySQL
+    LocalDate NO_PERIOD_START = LocalDate.of(1000, 1, 1);
+    LocalDate NO_PERIOD_END = LocalDate.of(9999, 12, 31);
+    
+    /**
+     * Keyset page: ids after the cursor, optionally one employee and periods within [from, to].
+     * Scalar columns only: the TEXT analysis columns are tested for null, never read
+     */
+    default List<KPISummary> findSummaryPage(long afterId, Long employeeId, LocalDate from, LocalDate to,
+                                             Pageable pageable) {
+        LocalDate start = from != null ? from : NO_PERIOD_START;
+        LocalDate end = to != null ? to : NO_PERIOD_END;
+        return employeeId != null
+                ? findSummaryPageByEmployee(afterId, employeeId, start, end, pageable)
+                : findSummaryPageByPeriod(afterId, start, end, pageable);
+    }
+    
+    // Index idx_kpis_employee (employee_id, id)
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM KPI k WHERE k.employee.id = :employeeId AND k.id > :afterId " +
+           "AND k.periodStart >= :from AND k.periodEnd <= :to ORDER BY k.id")
+    List<KPISummary> findSummaryPageByEmployee(@Param("afterId") long afterId, @Param("employeeId") Long employeeId,
+                                               @Param("from") LocalDate from, @Param("to") LocalDate to,
+                                               Pageable pageable);
+    
+    // Primary key, or index idx_kpis_period_start (period_start, id) for a selective start date
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM KPI k WHERE k.id > :afterId " +
+           "AND k.periodStart >= :from AND k.periodEnd <= :to ORDER BY k.id")
+    List<KPISummary> findSummaryPageByPeriod(@Param("afterId") long afterId, @Param("from") LocalDate from,
+                                             @Param("to") LocalDate to, Pageable pageable);
+    
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM KPI k WHERE k.employee.id = :employeeId ORDER BY k.periodStart, k.id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<KPISummary> findSummariesByEmployeeId(@Param("employeeId") Long employeeId);
+    
+    @Query("SELECT k.employee.id FROM KPI k WHERE k.id = :id")
+    Optional<Long> findEmployeeIdById(@Param("id") Long id);
+    
+    /**
+     * Version of the KPIs filtered like findSummaryPage (the cursor only selects a window of it)
+     */
+    default VersionStamp findVersionStamp(Long employeeId, LocalDate from, LocalDate to) {
+        LocalDate start = from != null ? from : NO_PERIOD_START;
+        LocalDate end = to != null ? to : NO_PERIOD_END;
+        return employeeId != null
+                ? findVersionStampByEmployee(employeeId, start, end)
+                : findVersionStampByPeriod(start, end);
+    }
+    
+    @Query("SELECT count(k) AS count, max(k.id) AS maxId, max(k.updatedAt) AS lastModified FROM KPI k " +
+           "WHERE k.employee.id = :employeeId AND k.periodStart >= :from AND k.periodEnd <= :to")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStampByEmployee(@Param("employeeId") Long employeeId, @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+    
+    @Query("SELECT count(k) AS count, max(k.id) AS maxId, max(k.updatedAt) AS lastModified FROM KPI k " +
+           "WHERE k.periodStart >= :from AND k.periodEnd <= :to")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    VersionStamp findVersionStampByPeriod(@Param("from") LocalDate from, @Param("to") LocalDate to);
+    
+    // Employee, KPIs and metrics in one round trip for the analysis path. Only one collection is
+    // fetched (metrics), so there is no MultipleBagFetchException; Hibernate 6 de-duplicates the KPIs
+    @Query("SELECT k FROM KPI k JOIN FETCH k.employee LEFT JOIN FETCH k.metrics " +
+           "WHERE k.employee.id = :employeeId ORDER BY k.periodStart, k.id")
+    List<KPI> findWithMetricsByEmployeeId(@Param("employeeId") Long employeeId);
+
 }
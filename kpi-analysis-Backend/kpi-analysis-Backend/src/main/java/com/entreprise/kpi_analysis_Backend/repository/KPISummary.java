@@ -0,0 +1,16 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Projection of a KPI without its analysis texts (ai_analysis, ai_recommendations), for list views
+ */
+public interface KPISummary {
+    Long getId();
+    Long getEmployeeId();
+    LocalDate getPeriodStart();
+    LocalDate getPeriodEnd();
+    Double getOverallScore();
+    String getAnalysisFingerprint();
+    Boolean getHasAnalysis();
+}
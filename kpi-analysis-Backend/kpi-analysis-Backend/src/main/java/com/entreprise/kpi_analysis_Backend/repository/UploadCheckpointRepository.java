@@ -0,0 +1,46 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import com.entreprise.kpi_analysis_Backend.entity.UploadCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface UploadCheckpointRepository extends JpaRepository<UploadCheckpoint, Long> {
+    Optional<UploadCheckpoint> findByFileHashAndPeriodStartAndPeriodEnd(String fileHash, LocalDate periodStart, LocalDate periodEnd);
+    
+    // Runs inside the chunk transaction, so the checkpoint commits together with the chunk
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadCheckpoint c SET c.lastCommittedRow = :row, c.updatedAt = :now WHERE c.id = :id")
+    void updateLastCommittedRow(@Param("id") Long id, @Param("row") long row, @Param("now") LocalDateTime now);
+    
+    /**
+     * Take over an existing checkpoint for a new import: 0 when another import holds it (IN_PROGRESS
+     * and updated after staleBefore). A completed checkpoint starts again from the first row.
+     * lastCommittedRow is assigned first: MySQL evaluates the SET clause left to right
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UploadCheckpoint c SET " +
+           "c.lastCommittedRow = CASE WHEN c.status = com.entreprise.kpi_analysis_Backend.entity.UploadCheckpoint.Status.COMPLETED " +
+           "THEN 0 ELSE c.lastCommittedRow END, " +
+           "c.status = com.entreprise.kpi_analysis_Backend.entity.UploadCheckpoint.Status.IN_PROGRESS, " +
+           "c.fileName = :fileName, c.updatedAt = :now " +
+           "WHERE c.id = :id AND (c.status <> com.entreprise.kpi_analysis_Backend.entity.UploadCheckpoint.Status.IN_PROGRESS " +
+           "OR c.updatedAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("fileName") String fileName, @Param("now") LocalDateTime now,
+              @Param("staleBefore") LocalDateTime staleBefore);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadCheckpoint c SET c.status = :status, c.updatedAt = :now WHERE c.id = :id")
+    void updateStatus(@Param("id") Long id, @Param("status") UploadCheckpoint.Status status, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,13 @@
+package com.entreprise.kpi_analysis_Backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates that change whenever a set of rows does: count (deletions), max id (insertions)
+ * and latest updatedAt (updates). Used to build ETags without loading the rows.
+ */
+public interface VersionStamp {
+    Long getCount();
+    Long getMaxId();
+    LocalDateTime getLastModified();
+}
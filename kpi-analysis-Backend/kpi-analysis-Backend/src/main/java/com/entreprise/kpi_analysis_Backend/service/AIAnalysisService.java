@@ -6,15 +6,19 @@ import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
 import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
 import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
 import com.entreprise.kpi_analysis_Backend.repository.KPIRepository;
-import com.entreprise.kpi_analysis_Backend.repository.KPIMetricRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,76 +27,140 @@ public class AIAnalysisService {
     private static final Logger logger = LoggerFactory.getLogger(AIAnalysisService.class);
     
     private final KPIRepository kpiRepository;
-    private final KPIMetricRepository kpiMetricRepository;
     private final EmployeeRepository employeeRepository;
     private final GroqService groqService;
+    private final AnalysisPromptBuilder promptBuilder;
     
     @Autowired
     public AIAnalysisService(
             KPIRepository kpiRepository, 
-            KPIMetricRepository kpiMetricRepository,
             EmployeeRepository employeeRepository,
-            GroqService groqService) {
+            GroqService groqService,
+            AnalysisPromptBuilder promptBuilder) {
         this.kpiRepository = kpiRepository;
-        this.kpiMetricRepository = kpiMetricRepository;
         this.employeeRepository = employeeRepository;
         this.groqService = groqService;
+        this.promptBuilder = promptBuilder;
     }
     
     /**
      * Analyze employee performance and generate AI analysis using Groq
      */
     public String analyzeEmployeePerformance(Long employeeId) {
-        logger.info("Starting AI analysis for employee ID: {}", employeeId);
-        
-        Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
-        
-        List<KPI> kpis = kpiRepository.findByEmployeeId(employeeId);
-        
-        if (kpis.isEmpty()) {
-            return "Aucune donnée KPI disponible pour cet employé.";
+        return analyzeEmployeePerformanceAsync(employeeId).block();
+    }
+    
+    /**
+     * Non-blocking variant: data is loaded on the bounded elastic scheduler (JPA is blocking),
+     * no thread is held while waiting for Groq
+     */
+    public Mono<String> analyzeEmployeePerformanceAsync(Long employeeId) {
+        return loadAnalysisInput(employeeId).flatMap(input -> analyze(employeeId, input));
+    }
+    
+    /**
+     * Streaming variant: relays the Groq completion chunk by chunk. If Groq fails before the first
+     * chunk, the rule-based analysis is emitted instead; if it fails mid-stream, a notice is appended.
+     * Neither is saved. A completed analysis is saved on the latest KPI only, with its fingerprint
+     * cleared: the recommendations were not regenerated, so the KPI stays stale until the next full refresh.
+     */
+    public Flux<String> streamEmployeePerformanceAnalysis(Long employeeId) {
+        return loadAnalysisInput(employeeId).flatMapMany(input -> {
+            if (input.getKpis().isEmpty() || input.getAllMetrics().isEmpty()) {
+                return Flux.from(analyze(employeeId, input));
+            }
+            StringBuilder assembled = new StringBuilder();
+            return groqService.streamEmployeePerformanceAnalysis(input.getEmployeeData(), input.getKpiData())
+                    .doOnNext(assembled::append)
+                    .onErrorResume(e -> {
+                        if (assembled.length() > 0) {
+                            logger.warn("Groq stream interrupted for employee {}: {}", employeeId, e.getMessage());
+                            assembled.setLength(0);
+                            return Flux.just("\n\n[Analyse interrompue: " + e.getMessage() + "]");
+                        }
+                        logger.warn("Groq stream failed, falling back to rule-based analysis: {}", e.getMessage());
+                        return Flux.just(generateRuleBasedAnalysis(employeeId, input));
+                    })
+                    .concatWith(Mono.defer(() -> saveStreamedAnalysis(employeeId, input, assembled.toString())));
+        });
+    }
+    
+    private Mono<String> saveStreamedAnalysis(Long employeeId, EmployeeAnalysisSnapshot input, String analysis) {
+        if (analysis.isEmpty()) {
+            return Mono.empty();
         }
-        
-        // Get all metrics for the employee's KPIs
-        List<KPIMetric> allMetrics = kpis.stream()
-                .flatMap(kpi -> kpiMetricRepository.findByKpiId(kpi.getId()).stream())
-                .collect(Collectors.toList());
-        
-        if (allMetrics.isEmpty()) {
-            return "Aucune métrique disponible pour l'analyse.";
+        // Snapshot KPIs are ordered by period: the analysis describes the employee as of the last one
+        Long latestKpiId = input.getKpis().get(input.getKpis().size() - 1).getId();
+        return Mono.<String>fromRunnable(() -> {
+                    kpiRepository.updateStreamedAnalysis(latestKpiId, analysis, LocalDateTime.now());
+                    logger.info("Streamed analysis saved on KPI {} of employee {}", latestKpiId, employeeId);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    logger.error("Could not save streamed analysis for employee {}: {}", employeeId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+    
+    /**
+     * Analysis step of the pipeline, on already loaded data
+     */
+    private Mono<String> analyze(Long employeeId, EmployeeAnalysisSnapshot input) {
+        return analysisText(employeeId, input).map(GeneratedText::getText);
+    }
+    
+    private Mono<GeneratedText> analysisText(Long employeeId, EmployeeAnalysisSnapshot input) {
+        if (input.getKpis().isEmpty()) {
+            return Mono.just(GeneratedText.fallback("Aucune donnée KPI disponible pour cet employé."));
+        }
+        if (input.getAllMetrics().isEmpty()) {
+            return Mono.just(GeneratedText.fallback("Aucune métrique disponible pour l'analyse."));
         }
         
-        try {
-            // Format employee data for AI
-            String employeeData = formatEmployeeData(employee);
-            
-            // Format KPI data for AI
-            String kpiData = formatKPIData(kpis, allMetrics);
+        // Use Groq AI for intelligent analysis
+        logger.debug("Calling Groq API for employee analysis");
+        return groqService.analyzeEmployeePerformanceAsync(input.getEmployeeData(), input.getKpiData())
+                .map(aiAnalysis -> {
+                    // Check if the response is an error message
+                    if (aiAnalysis.startsWith("Erreur")) {
+                        logger.warn("Groq API returned error, falling back to rule-based analysis");
+                        return GeneratedText.fallback(generateRuleBasedAnalysis(employeeId, input));
+                    }
+                    logger.info("Successfully generated AI analysis for employee: {}", employeeId);
+                    return GeneratedText.fromLlm(aiAnalysis);
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error using Groq API, falling back to rule-based analysis: {}", e.getMessage(), e);
+                    return Mono.just(GeneratedText.fallback(generateRuleBasedAnalysis(employeeId, input)));
+                });
+    }
+    
+    /**
+     * Load the employee, its KPIs and metrics into a snapshot, and format them for the prompts
+     */
+    private Mono<EmployeeAnalysisSnapshot> loadAnalysisInput(Long employeeId) {
+        return Mono.fromCallable(() -> {
+            logger.info("Starting AI analysis for employee ID: {}", employeeId);
             
-            // Use Groq AI for intelligent analysis
-            logger.debug("Calling Groq API for employee analysis");
-            String aiAnalysis = groqService.analyzeEmployeePerformance(employeeData, kpiData);
+            // Employee, KPIs and metrics in one query; the employee alone only when it has no KPI yet
+            List<KPI> kpis = kpiRepository.findWithMetricsByEmployeeId(employeeId);
+            Employee employee = !kpis.isEmpty() ? kpis.get(0).getEmployee() : employeeRepository.findById(employeeId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
             
-            // Check if the response is an error message
-            if (aiAnalysis.startsWith("Erreur")) {
-                logger.warn("Groq API returned error, falling back to rule-based analysis");
-                return generateRuleBasedAnalysis(employeeId, kpis, allMetrics);
+            EmployeeAnalysisSnapshot snapshot = new EmployeeAnalysisSnapshot(employee, kpis);
+            if (snapshot.getAllMetrics().isEmpty()) {
+                return snapshot;
             }
-            
-            logger.info("Successfully generated AI analysis for employee: {}", employeeId);
-            return aiAnalysis;
-            
-        } catch (Exception e) {
-            logger.error("Error using Groq API, falling back to rule-based analysis: {}", e.getMessage(), e);
-            return generateRuleBasedAnalysis(employeeId, kpis, allMetrics);
-        }
+            return snapshot.withPrompts(formatEmployeeData(employee), promptBuilder.formatKPIData(
+                    snapshot.getKpis(), snapshot.getMetricsByKpi(), snapshot.getAllMetrics()));
+        }).subscribeOn(Schedulers.boundedElastic());
     }
     
     /**
      * Fallback rule-based analysis when AI is unavailable
      */
-    private String generateRuleBasedAnalysis(Long employeeId, List<KPI> kpis, List<KPIMetric> allMetrics) {
+    private String generateRuleBasedAnalysis(Long employeeId, EmployeeAnalysisSnapshot input) {
+        List<KPIMetric> allMetrics = input.getAllMetrics();
         Map<KPIMetric.MetricType, Double> averageScores = allMetrics.stream()
                 .collect(Collectors.groupingBy(
                         KPIMetric::getMetricType,
@@ -110,7 +178,7 @@ public class AIAnalysisService {
             KPIMetric.MetricType type = entry.getKey();
             Double score = entry.getValue();
             
-            analysis.append(getMetricTypeLabel(type)).append(": ");
+            analysis.append(AnalysisPromptBuilder.metricTypeLabel(type)).append(": ");
             analysis.append(String.format("%.2f%%", score));
             
             if (score >= 90) {
@@ -149,56 +217,55 @@ public class AIAnalysisService {
      * Generate AI recommendations based on KPI analysis using Groq
      */
     public String generateRecommendations(Long employeeId) {
+        return generateRecommendationsAsync(employeeId).block();
+    }
+    
+    public Mono<String> generateRecommendationsAsync(Long employeeId) {
         logger.info("Generating AI recommendations for employee ID: {}", employeeId);
         
-        Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new ResourceNotFoundException("Employee not found with id: " + employeeId));
-        
-        List<KPI> kpis = kpiRepository.findByEmployeeId(employeeId);
-        
-        if (kpis.isEmpty()) {
-            return "Aucune recommandation disponible. Aucune donnée KPI trouvée.";
+        // The analysis the recommendations are based on is produced from the same loaded data
+        return loadAnalysisInput(employeeId).flatMap(input -> analyze(employeeId, input)
+                .flatMap(analysis -> recommend(employeeId, input, analysis)));
+    }
+    
+    /**
+     * Recommendation step of the pipeline, reusing the data and the analysis already produced
+     */
+    private Mono<String> recommend(Long employeeId, EmployeeAnalysisSnapshot input, String analysis) {
+        return recommendationText(employeeId, input, analysis).map(GeneratedText::getText);
+    }
+    
+    private Mono<GeneratedText> recommendationText(Long employeeId, EmployeeAnalysisSnapshot input, String analysis) {
+        if (input.getKpis().isEmpty()) {
+            return Mono.just(GeneratedText.fallback("Aucune recommandation disponible. Aucune donnée KPI trouvée."));
         }
-        
-        List<KPIMetric> allMetrics = kpis.stream()
-                .flatMap(kpi -> kpiMetricRepository.findByKpiId(kpi.getId()).stream())
-                .collect(Collectors.toList());
-        
-        if (allMetrics.isEmpty()) {
-            return "Aucune recommandation disponible. Aucune métrique trouvée.";
+        if (input.getAllMetrics().isEmpty()) {
+            return Mono.just(GeneratedText.fallback("Aucune recommandation disponible. Aucune métrique trouvée."));
         }
         
-        try {
-            // First, get the analysis
-            String analysis = analyzeEmployeePerformance(employeeId);
-            
-            // Format employee and KPI data
-            String employeeData = formatEmployeeData(employee);
-            String kpiData = formatKPIData(kpis, allMetrics);
-            
-            // Use Groq AI for intelligent recommendations
-            logger.debug("Calling Groq API for recommendations");
-            String aiRecommendations = groqService.generateRecommendations(employeeData, kpiData, analysis);
-            
-            // Check if the response is an error message
-            if (aiRecommendations.startsWith("Erreur")) {
-                logger.warn("Groq API returned error, falling back to rule-based recommendations");
-                return generateRuleBasedRecommendations(employeeId, allMetrics);
-            }
-            
-            logger.info("Successfully generated AI recommendations for employee: {}", employeeId);
-            return aiRecommendations;
-            
-        } catch (Exception e) {
-            logger.error("Error using Groq API, falling back to rule-based recommendations: {}", e.getMessage(), e);
-            return generateRuleBasedRecommendations(employeeId, allMetrics);
-        }
+        // Use Groq AI for intelligent recommendations
+        logger.debug("Calling Groq API for recommendations");
+        return groqService.generateRecommendationsAsync(input.getEmployeeData(), input.getKpiData(), analysis)
+                .map(aiRecommendations -> {
+                    // Check if the response is an error message
+                    if (aiRecommendations.startsWith("Erreur")) {
+                        logger.warn("Groq API returned error, falling back to rule-based recommendations");
+                        return GeneratedText.fallback(generateRuleBasedRecommendations(employeeId, input));
+                    }
+                    logger.info("Successfully generated AI recommendations for employee: {}", employeeId);
+                    return GeneratedText.fromLlm(aiRecommendations);
+                })
+                .onErrorResume(e -> {
+                    logger.error("Error using Groq API, falling back to rule-based recommendations: {}", e.getMessage(), e);
+                    return Mono.just(GeneratedText.fallback(generateRuleBasedRecommendations(employeeId, input)));
+                });
     }
     
     /**
      * Fallback rule-based recommendations when AI is unavailable
      */
-    private String generateRuleBasedRecommendations(Long employeeId, List<KPIMetric> allMetrics) {
+    private String generateRuleBasedRecommendations(Long employeeId, EmployeeAnalysisSnapshot input) {
+        List<KPIMetric> allMetrics = input.getAllMetrics();
         StringBuilder recommendations = new StringBuilder();
         recommendations.append("Recommandations pour l'employé ID: ").append(employeeId).append("\n\n");
         
@@ -220,7 +287,7 @@ public class AIAnalysisService {
                     .orElse(0.0);
             
             if (averageScore < 70) {
-                recommendations.append("• ").append(getMetricTypeLabel(type))
+                recommendations.append("• ").append(AnalysisPromptBuilder.metricTypeLabel(type))
                         .append(" (").append(String.format("%.1f%%", averageScore))
                         .append("): ").append(getRecommendationForMetricType(type))
                         .append("\n");
@@ -252,36 +319,78 @@ public class AIAnalysisService {
     }
     
     /**
-     * Auto-update KPI with AI analysis and recommendations
+     * Auto-update KPI with AI analysis and recommendations.
+     * The employee data is loaded once and the recommendations reuse the analysis: two Groq calls per refresh.
+     * Nothing is generated when the inputs are unchanged since the stored analysis (same fingerprint).
      */
     public void updateKPIWithAnalysis(Long kpiId) {
-        KPI kpi = kpiRepository.findById(kpiId)
-                .orElseThrow(() -> new RuntimeException("KPI not found: " + kpiId));
-        
-        Long employeeId = kpi.getEmployee().getId();
-        
-        String analysis = analyzeEmployeePerformance(employeeId);
-        String recommendations = generateRecommendations(employeeId);
-        
-        kpi.setAiAnalysis(analysis);
-        kpi.setAiRecommendations(recommendations);
-        
-        // Calculate overall score based on metrics
-        List<KPIMetric> metrics = kpiMetricRepository.findByKpiId(kpiId);
+        updateKPIWithAnalysisAsync(kpiId, false).block();
+    }
+    
+    /**
+     * @param force Regenerate even when the stored analysis is up to date
+     */
+    public Mono<Void> updateKPIWithAnalysisAsync(Long kpiId, boolean force) {
+        // Only the employee ID is needed: the KPI row (with its TEXT analysis columns) is not loaded
+        return Mono.fromCallable(() -> kpiRepository.findEmployeeIdById(kpiId)
+                        .orElseThrow(() -> new ResourceNotFoundException("KPI", kpiId)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(employeeId -> updateKPIsWithAnalysisAsync(employeeId, Set.of(kpiId), force));
+    }
+    
+    /**
+     * Update several KPIs of the same employee from a single analysis (the analysis is employee-wide)
+     */
+    public void updateKPIsWithAnalysis(Long employeeId, Collection<Long> kpiIds) {
+        updateKPIsWithAnalysisAsync(employeeId, kpiIds, false).block();
+    }
+    
+    public Mono<Void> updateKPIsWithAnalysisAsync(Long employeeId, Collection<Long> kpiIds, boolean force) {
+        return loadAnalysisInput(employeeId).flatMap(input -> {
+            String fingerprint = input.fingerprint();
+            List<KPI> targets = input.getKpis().stream()
+                    .filter(kpi -> kpiIds.contains(kpi.getId()))
+                    .filter(kpi -> force || kpi.getAiAnalysis() == null
+                            || !fingerprint.equals(kpi.getAnalysisFingerprint()))
+                    .collect(Collectors.toList());
+            if (targets.isEmpty()) {
+                logger.debug("Inputs of KPIs {} unchanged since last analysis, skipping", kpiIds);
+                return Mono.<String>empty();
+            }
+            return analysisText(employeeId, input)
+                    .flatMap(analysis -> recommendationText(employeeId, input, analysis.getText())
+                            .publishOn(Schedulers.boundedElastic())
+                            .doOnNext(recommendations -> {
+                                // A fallback must not look up to date, or the KPI would keep it until forced
+                                boolean fromLlm = analysis.isFromLlm() && recommendations.isFromLlm();
+                                if (!fromLlm) {
+                                    logger.info("Rule-based fallback saved on KPIs {}, they stay stale for the next run",
+                                            kpiIds);
+                                }
+                                targets.forEach(kpi -> saveAnalysis(kpi, input, fromLlm ? fingerprint : null,
+                                        analysis.getText(), recommendations.getText()));
+                            }));
+        }).then();
+    }
+    
+    /**
+     * Write the analysis on a freshly loaded KPI (KPIRepository.updateAnalysis), not on the snapshot
+     * entity: it is detached and carries its fetched metrics, which a merge would cascade into
+     *
+     * @param fingerprint Fingerprint of the inputs, null when a text is a rule-based fallback
+     */
+    private void saveAnalysis(KPI kpi, EmployeeAnalysisSnapshot input, String fingerprint, String analysis, String recommendations) {
+        // Calculate overall score based on the metrics of this KPI, already loaded with the employee data
+        List<KPIMetric> metrics = input.getMetrics(kpi.getId());
+        Double overallScore = kpi.getOverallScore();
         if (!metrics.isEmpty()) {
-            double overallScore = metrics.stream()
-                    .mapToDouble(metric -> {
-                        if (metric.getTargetValue() != null && metric.getTargetValue() > 0) {
-                            return (metric.getValue() / metric.getTargetValue()) * 100;
-                        }
-                        return metric.getValue();
-                    })
+            overallScore = metrics.stream()
+                    .mapToDouble(AnalysisPromptBuilder::score)
                     .average()
                     .orElse(0.0);
-            kpi.setOverallScore(overallScore);
         }
         
-        kpiRepository.save(kpi);
+        kpiRepository.updateAnalysis(kpi.getId(), analysis, recommendations, fingerprint, overallScore, LocalDateTime.now());
     }
     
     /**
@@ -299,73 +408,35 @@ public class AIAnalysisService {
         return sb.toString();
     }
     
+    // Helper methods
+    
     /**
-     * Format KPI and metric data for AI analysis
+     * Analysis or recommendations text, and whether it came from the LLM or from a fallback
      */
-    private String formatKPIData(List<KPI> kpis, List<KPIMetric> allMetrics) {
-        StringBuilder sb = new StringBuilder();
+    private static final class GeneratedText {
+        private final String text;
+        private final boolean fromLlm;
         
-        // Group metrics by KPI ID - fetch metrics for each KPI to avoid lazy loading issues
-        for (KPI kpi : kpis) {
-            sb.append("--- Période KPI: ").append(kpi.getPeriodStart())
-                    .append(" à ").append(kpi.getPeriodEnd()).append(" ---\n");
-            
-            if (kpi.getOverallScore() != null) {
-                sb.append("Score global: ").append(String.format("%.2f%%", kpi.getOverallScore())).append("\n");
-            }
-            
-            // Get metrics for this specific KPI using the repository (avoids lazy loading)
-            List<KPIMetric> kpiMetrics = kpiMetricRepository.findByKpiId(kpi.getId());
-            for (KPIMetric metric : kpiMetrics) {
-                sb.append("  • ").append(getMetricTypeLabel(metric.getMetricType())).append(":\n");
-                sb.append("    - Valeur: ").append(metric.getValue()).append("\n");
-                if (metric.getTargetValue() != null && metric.getTargetValue() > 0) {
-                    sb.append("    - Cible: ").append(metric.getTargetValue()).append("\n");
-                    double percentage = (metric.getValue() / metric.getTargetValue()) * 100;
-                    sb.append("    - Pourcentage: ").append(String.format("%.2f%%", percentage)).append("\n");
-                }
-                if (metric.getCreatedAt() != null) {
-                    sb.append("    - Date de création: ").append(metric.getCreatedAt().toLocalDate()).append("\n");
-                }
-            }
-            sb.append("\n");
+        private GeneratedText(String text, boolean fromLlm) {
+            this.text = text;
+            this.fromLlm = fromLlm;
         }
         
-        // Summary by metric type
-        sb.append("=== Résumé par Type de Métrique ===\n");
-        Map<KPIMetric.MetricType, List<KPIMetric>> metricsByType = allMetrics.stream()
-                .collect(Collectors.groupingBy(KPIMetric::getMetricType));
+        static GeneratedText fromLlm(String text) {
+            return new GeneratedText(text, true);
+        }
         
-        for (Map.Entry<KPIMetric.MetricType, List<KPIMetric>> entry : metricsByType.entrySet()) {
-            KPIMetric.MetricType type = entry.getKey();
-            List<KPIMetric> metrics = entry.getValue();
-            
-            double average = metrics.stream()
-                    .mapToDouble(metric -> {
-                        if (metric.getTargetValue() != null && metric.getTargetValue() > 0) {
-                            return (metric.getValue() / metric.getTargetValue()) * 100;
-                        }
-                        return metric.getValue();
-                    })
-                    .average()
-                    .orElse(0.0);
-            
-            sb.append(getMetricTypeLabel(type)).append(": Moyenne de ")
-                    .append(String.format("%.2f%%", average)).append("\n");
+        static GeneratedText fallback(String text) {
+            return new GeneratedText(text, false);
         }
         
-        return sb.toString();
-    }
-    
-    // Helper methods
-    private String getMetricTypeLabel(KPIMetric.MetricType type) {
-        return switch (type) {
-            case ATTENDANCE -> "Assiduité";
-            case VELOCITY -> "Vélocité";
-            case QUALITY -> "Qualité";
-            case PRODUCTIVITY -> "Productivité";
-            case EFFICIENCY -> "Efficacité";
-        };
+        String getText() {
+            return text;
+        }
+        
+        boolean isFromLlm() {
+            return fromLlm;
+        }
     }
     
     private String getRecommendationForMetricType(KPIMetric.MetricType type) {
@@ -378,4 +449,3 @@ public class AIAnalysisService {
         };
     }
 }
-
@@ -0,0 +1,78 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import com.entreprise.kpi_analysis_Backend.repository.KPISummary;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Fingerprint of the inputs of an employee analysis: the employee fields used in the
+ * prompt and every metric (value, target, type) of the employee's KPIs.
+ * A KPI whose stored fingerprint matches does not need to be analysed again.
+ */
+public final class AnalysisFingerprint {
+
+    private AnalysisFingerprint() {
+    }
+
+    /**
+     * Hex SHA-256 of the inputs, independent of the order the rows were loaded in
+     */
+    public static String compute(Employee employee, List<KPI> kpis, Map<Long, List<KPIMetric>> metricsByKpi) {
+        return compute(employee, kpis, KPI::getId, KPI::getPeriodStart, KPI::getPeriodEnd, metricsByKpi);
+    }
+
+    /**
+     * Same fingerprint from KPI summaries, for list views that do not load the KPI entities
+     */
+    public static String computeFromSummaries(Employee employee, List<KPISummary> kpis,
+                                              Map<Long, List<KPIMetric>> metricsByKpi) {
+        return compute(employee, kpis, KPISummary::getId, KPISummary::getPeriodStart, KPISummary::getPeriodEnd,
+                metricsByKpi);
+    }
+
+    private static <K> String compute(Employee employee, List<K> kpis, Function<K, Long> idOf,
+                                      Function<K, LocalDate> startOf, Function<K, LocalDate> endOf,
+                                      Map<Long, List<KPIMetric>> metricsByKpi) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(employee.getFirstName()).append('|')
+                .append(employee.getLastName()).append('|')
+                .append(employee.getEmail()).append('|')
+                .append(employee.getDepartment()).append('|')
+                .append(employee.getPosition()).append('|')
+                .append(employee.getCreatedAt() != null ? employee.getCreatedAt().toLocalDate() : null).append('\n');
+
+        kpis.stream()
+                .sorted(Comparator.comparing(idOf))
+                .forEach(kpi -> {
+                    sb.append(idOf.apply(kpi)).append('|')
+                            .append(startOf.apply(kpi)).append('|')
+                            .append(endOf.apply(kpi)).append('\n');
+                    metricsByKpi.getOrDefault(idOf.apply(kpi), List.of()).stream()
+                            .sorted(Comparator.comparing(KPIMetric::getId))
+                            .forEach(metric -> sb.append(metric.getId()).append('|')
+                                    .append(metric.getMetricType()).append('|')
+                                    .append(metric.getValue()).append('|')
+                                    .append(metric.getTargetValue()).append('|')
+                                    .append(metric.getCreatedAt() != null ? metric.getCreatedAt().toLocalDate() : null)
+                                    .append('\n'));
+                });
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
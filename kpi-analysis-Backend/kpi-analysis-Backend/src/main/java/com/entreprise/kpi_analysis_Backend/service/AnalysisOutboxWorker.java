@@ -0,0 +1,201 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest;
+import com.entreprise.kpi_analysis_Backend.repository.AnalysisRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the analysis outbox (analysis_requests) on the analysisExecutor.
+ *
+ * Uploads only record requests in their own transactions and call {@link #wakeUp()}
+ * once their data is committed. Draining (claiming requests and handing them to the executor)
+ * runs on the scheduler thread, never on the upload's; a scheduled poll picks up anything left behind
+ * (wake-ups lost to a full executor, restarts, requests stuck in PROCESSING).
+ * Requests are claimed with a conditional update, so several instances can drain safely.
+ * A claimed request may wait in the executor queue for a long time (Groq rate limit): each poll
+ * refreshes the updatedAt of the requests this instance holds, so only requests of a stopped
+ * worker look stale.
+ */
+@Component
+public class AnalysisOutboxWorker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisOutboxWorker.class);
+    
+    private final AnalysisRequestRepository analysisRequestRepository;
+    private final AIAnalysisService aiAnalysisService;
+    private final ThreadPoolTaskExecutor analysisExecutor;
+    private final TaskScheduler taskScheduler;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long staleAfterMinutes;
+    // Set by wakeUp, cleared when the scheduled drain starts: a burst of uploads schedules one drain
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    // Claimed requests queued in or running on the executor
+    private final Set<Long> held = ConcurrentHashMap.newKeySet();
+    
+    @Autowired
+    public AnalysisOutboxWorker(
+            AnalysisRequestRepository analysisRequestRepository,
+            AIAnalysisService aiAnalysisService,
+            @Qualifier("analysisExecutor") ThreadPoolTaskExecutor analysisExecutor,
+            TaskScheduler taskScheduler,
+            @Value("${analysis.outbox.batch-size:20}") int batchSize,
+            @Value("${analysis.outbox.max-attempts:3}") int maxAttempts,
+            @Value("${analysis.outbox.stale-after-minutes:15}") long staleAfterMinutes) {
+        this.analysisRequestRepository = analysisRequestRepository;
+        this.aiAnalysisService = aiAnalysisService;
+        this.analysisExecutor = analysisExecutor;
+        this.taskScheduler = taskScheduler;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.staleAfterMinutes = staleAfterMinutes;
+    }
+    
+    /**
+     * Called after an upload commits: schedule a drain on the scheduler thread and return at once
+     */
+    public void wakeUp() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskScheduler.schedule(this::drainNow, Instant.now());
+        } catch (Exception e) {
+            // The scheduled poll will pick the requests up
+            drainScheduled.set(false);
+            logger.warn("Could not schedule the analysis outbox drain: {}", e.getMessage());
+        }
+    }
+    
+    private void drainNow() {
+        drainScheduled.set(false);
+        try {
+            drain();
+        } catch (Exception e) {
+            // The scheduled poll will retry
+            logger.warn("Could not dispatch pending analysis requests: {}", e.getMessage());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${analysis.outbox.poll-interval-ms:30000}")
+    public void poll() {
+        if (!held.isEmpty()) {
+            analysisRequestRepository.touch(List.copyOf(held), LocalDateTime.now());
+        }
+        int requeued = analysisRequestRepository.requeueStale(
+                LocalDateTime.now().minusMinutes(staleAfterMinutes), LocalDateTime.now());
+        if (requeued > 0) {
+            logger.warn("Requeued {} analysis requests stuck in PROCESSING", requeued);
+        }
+        drain();
+    }
+    
+    /**
+     * Claim pending requests page by page until none are left or the executor is full.
+     * Claimed requests are grouped per employee: the analysis is employee-wide, so one
+     * task analyses the employee once and updates all of its requested KPIs.
+     */
+    private void drain() {
+        while (true) {
+            if (executorFull()) {
+                // Claiming now would only mean releasing the requests again
+                logger.debug("Analysis executor full, pending requests left for the next poll");
+                return;
+            }
+            List<AnalysisRequest> pending = analysisRequestRepository.findByStatusOrderByIdAsc(
+                    AnalysisRequest.Status.PENDING, PageRequest.of(0, batchSize));
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<Long, List<AnalysisRequest>> claimedByEmployee = new LinkedHashMap<>();
+            for (AnalysisRequest request : pending) {
+                if (analysisRequestRepository.transition(request.getId(), AnalysisRequest.Status.PENDING,
+                        AnalysisRequest.Status.PROCESSING, LocalDateTime.now()) == 1) {
+                    claimedByEmployee.computeIfAbsent(request.getEmployeeId(), id -> new ArrayList<>()).add(request);
+                }
+            }
+            Iterator<List<AnalysisRequest>> groups = claimedByEmployee.values().iterator();
+            while (groups.hasNext()) {
+                List<AnalysisRequest> group = groups.next();
+                List<Long> ids = group.stream().map(AnalysisRequest::getId).toList();
+                held.addAll(ids);
+                try {
+                    analysisExecutor.execute(() -> process(group));
+                } catch (TaskRejectedException e) {
+                    // Release this group and the ones not submitted yet
+                    ids.forEach(held::remove);
+                    release(group);
+                    groups.forEachRemaining(this::release);
+                    logger.debug("Analysis executor full, remaining requests left for the next poll");
+                    return;
+                }
+            }
+            if (pending.size() < batchSize) {
+                return;
+            }
+        }
+    }
+    
+    private boolean executorFull() {
+        return analysisExecutor.getActiveCount() >= analysisExecutor.getMaxPoolSize()
+                && analysisExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() == 0;
+    }
+    
+    private void release(List<AnalysisRequest> group) {
+        for (AnalysisRequest request : group) {
+            analysisRequestRepository.transition(request.getId(), AnalysisRequest.Status.PROCESSING,
+                    AnalysisRequest.Status.PENDING, LocalDateTime.now());
+        }
+    }
+    
+    private void process(List<AnalysisRequest> group) {
+        Long employeeId = group.get(0).getEmployeeId();
+        Set<Long> kpiIds = group.stream().map(AnalysisRequest::getKpiId).collect(Collectors.toSet());
+        List<Long> ids = group.stream().map(AnalysisRequest::getId).toList();
+        try {
+            // Staleness counts from the start of the work, not from the claim
+            analysisRequestRepository.touch(ids, LocalDateTime.now());
+            aiAnalysisService.updateKPIsWithAnalysis(employeeId, kpiIds);
+            for (AnalysisRequest request : group) {
+                analysisRequestRepository.updateResult(request.getId(), AnalysisRequest.Status.DONE,
+                        request.getAttempts() + 1, null, LocalDateTime.now());
+            }
+            logger.debug("Analysis done for employee {} ({} KPIs)", employeeId, kpiIds.size());
+        } catch (Exception e) {
+            String error = String.valueOf(e.getMessage());
+            for (AnalysisRequest request : group) {
+                int attempts = request.getAttempts() + 1;
+                AnalysisRequest.Status status = attempts < maxAttempts
+                        ? AnalysisRequest.Status.PENDING
+                        : AnalysisRequest.Status.FAILED;
+                analysisRequestRepository.updateResult(request.getId(), status, attempts,
+                        error.length() > 1000 ? error.substring(0, 1000) : error, LocalDateTime.now());
+            }
+            logger.warn("Failed to generate AI analysis for employee: {} (KPIs {})", employeeId, kpiIds, e);
+        } finally {
+            ids.forEach(held::remove);
+        }
+    }
+}
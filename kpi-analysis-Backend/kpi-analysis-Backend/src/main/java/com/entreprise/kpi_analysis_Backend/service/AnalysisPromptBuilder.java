@@ -0,0 +1,214 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Formats an employee's KPI history for the Groq prompts within a token budget.
+ *
+ * Short histories are written out in full. When the full text would exceed the budget, the most
+ * recent periods stay verbatim and older periods are collapsed into one aggregate per metric type
+ * (mean, min, max and trend across periods); the verbatim window shrinks until the text fits.
+ * Tokens are estimated at about 4 characters each.
+ */
+@Component
+public class AnalysisPromptBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisPromptBuilder.class);
+
+    private final int tokenBudget;
+    private final int recentPeriods;
+
+    @Autowired
+    public AnalysisPromptBuilder(
+            @Value("${groq.prompt.token-budget:2500}") int tokenBudget,
+            @Value("${groq.prompt.recent-periods:6}") int recentPeriods) {
+        this.tokenBudget = tokenBudget;
+        this.recentPeriods = Math.max(1, recentPeriods);
+    }
+
+    /**
+     * Rough token count of a text (about 4 characters per token)
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * KPI section of the prompt, within the token budget
+     */
+    public String formatKPIData(List<KPI> kpis, Map<Long, List<KPIMetric>> metricsByKpi, List<KPIMetric> allMetrics) {
+        String summary = formatSummary(allMetrics);
+        String full = formatPeriods(kpis, metricsByKpi) + summary;
+        int fullTokens = estimateTokens(full);
+        if (fullTokens <= tokenBudget) {
+            return full;
+        }
+
+        // Most recent first; the verbatim window shrinks from recent-periods down to one period
+        List<KPI> byRecency = new ArrayList<>(kpis);
+        byRecency.sort(Comparator.comparing(KPI::getPeriodStart, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .reversed());
+        String text = full;
+        int verbatim = Math.min(recentPeriods, byRecency.size());
+        for (; verbatim >= 1; verbatim--) {
+            List<KPI> recent = chronological(byRecency.subList(0, verbatim));
+            List<KPI> older = chronological(byRecency.subList(verbatim, byRecency.size()));
+            text = formatAggregates(older, metricsByKpi) + formatPeriods(recent, metricsByKpi) + summary;
+            if (estimateTokens(text) <= tokenBudget) {
+                break;
+            }
+        }
+        verbatim = Math.max(verbatim, 1);
+
+        int tokens = estimateTokens(text);
+        logger.info("Prompt KPI data: {} period(s) verbatim, {} aggregated, ~{} tokens instead of ~{} ({} saved){}",
+                verbatim, kpis.size() - verbatim, tokens, fullTokens, fullTokens - tokens,
+                tokens > tokenBudget ? ", still over the budget of " + tokenBudget : "");
+        return text;
+    }
+
+    static String metricTypeLabel(KPIMetric.MetricType type) {
+        return switch (type) {
+            case ATTENDANCE -> "Assiduité";
+            case VELOCITY -> "Vélocité";
+            case QUALITY -> "Qualité";
+            case PRODUCTIVITY -> "Productivité";
+            case EFFICIENCY -> "Efficacité";
+        };
+    }
+
+    /**
+     * Percentage of target when a target is set, raw value otherwise
+     */
+    static double score(KPIMetric metric) {
+        if (metric.getTargetValue() != null && metric.getTargetValue() > 0) {
+            return (metric.getValue() / metric.getTargetValue()) * 100;
+        }
+        return metric.getValue();
+    }
+
+    private String formatPeriods(List<KPI> kpis, Map<Long, List<KPIMetric>> metricsByKpi) {
+        StringBuilder sb = new StringBuilder();
+
+        // Metrics are grouped by KPI ID when loaded (avoids lazy loading issues)
+        for (KPI kpi : kpis) {
+            sb.append("--- Période KPI: ").append(kpi.getPeriodStart())
+                    .append(" à ").append(kpi.getPeriodEnd()).append(" ---\n");
+
+            if (kpi.getOverallScore() != null) {
+                sb.append("Score global: ").append(String.format("%.2f%%", kpi.getOverallScore())).append("\n");
+            }
+
+            List<KPIMetric> kpiMetrics = metricsByKpi.getOrDefault(kpi.getId(), List.of());
+            for (KPIMetric metric : kpiMetrics) {
+                sb.append("  • ").append(metricTypeLabel(metric.getMetricType())).append(":\n");
+                sb.append("    - Valeur: ").append(metric.getValue()).append("\n");
+                if (metric.getTargetValue() != null && metric.getTargetValue() > 0) {
+                    sb.append("    - Cible: ").append(metric.getTargetValue()).append("\n");
+                    sb.append("    - Pourcentage: ").append(String.format("%.2f%%", score(metric))).append("\n");
+                }
+                if (metric.getCreatedAt() != null) {
+                    sb.append("    - Date de création: ").append(metric.getCreatedAt().toLocalDate()).append("\n");
+                }
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One line per metric type over the older periods: mean, min, max and trend of the per-period mean
+     */
+    private String formatAggregates(List<KPI> older, Map<Long, List<KPIMetric>> metricsByKpi) {
+        if (older.isEmpty()) {
+            return "";
+        }
+        // Per metric type, the mean score of each period in chronological order
+        Map<KPIMetric.MetricType, List<Double>> periodMeans = new EnumMap<>(KPIMetric.MetricType.class);
+        Map<KPIMetric.MetricType, DoubleSummaryStatistics> stats = new EnumMap<>(KPIMetric.MetricType.class);
+        for (KPI kpi : older) {
+            Map<KPIMetric.MetricType, DoubleSummaryStatistics> perPeriod = metricsByKpi
+                    .getOrDefault(kpi.getId(), List.of()).stream()
+                    .collect(Collectors.groupingBy(KPIMetric::getMetricType,
+                            Collectors.summarizingDouble(AnalysisPromptBuilder::score)));
+            perPeriod.forEach((type, periodStats) -> {
+                periodMeans.computeIfAbsent(type, t -> new ArrayList<>()).add(periodStats.getAverage());
+                stats.computeIfAbsent(type, t -> new DoubleSummaryStatistics()).combine(periodStats);
+            });
+        }
+
+        LocalDate from = older.get(0).getPeriodStart();
+        LocalDate to = older.get(older.size() - 1).getPeriodEnd();
+        StringBuilder sb = new StringBuilder();
+        sb.append("--- Historique agrégé: ").append(older.size()).append(" période(s) du ")
+                .append(from).append(" au ").append(to).append(" ---\n");
+        for (Map.Entry<KPIMetric.MetricType, DoubleSummaryStatistics> entry : stats.entrySet()) {
+            DoubleSummaryStatistics typeStats = entry.getValue();
+            sb.append("  • ").append(metricTypeLabel(entry.getKey())).append(": ")
+                    .append(String.format("moyenne %.2f%%, min %.2f%%, max %.2f%%",
+                            typeStats.getAverage(), typeStats.getMin(), typeStats.getMax()))
+                    .append(", tendance ").append(trend(periodMeans.get(entry.getKey())))
+                    .append("\n");
+        }
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * Least-squares slope of the per-period means, in points per period
+     */
+    private static String trend(List<Double> values) {
+        int n = values.size();
+        if (n < 2) {
+            return "non déterminée";
+        }
+        double meanX = (n - 1) / 2.0;
+        double meanY = values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < n; i++) {
+            covariance += (i - meanX) * (values.get(i) - meanY);
+            variance += (i - meanX) * (i - meanX);
+        }
+        double slope = covariance / variance;
+        // Below 1% of the mean per period, the series is considered flat
+        if (Math.abs(slope) < Math.max(Math.abs(meanY) * 0.01, 1e-9)) {
+            return "stable";
+        }
+        return String.format("%s (%+.2f par période)", slope > 0 ? "en hausse" : "en baisse", slope);
+    }
+
+    private String formatSummary(List<KPIMetric> allMetrics) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Résumé par Type de Métrique ===\n");
+        Map<KPIMetric.MetricType, Double> averages = allMetrics.stream()
+                .collect(Collectors.groupingBy(KPIMetric::getMetricType,
+                        Collectors.averagingDouble(AnalysisPromptBuilder::score)));
+        for (Map.Entry<KPIMetric.MetricType, Double> entry : averages.entrySet()) {
+            sb.append(metricTypeLabel(entry.getKey())).append(": Moyenne de ")
+                    .append(String.format("%.2f%%", entry.getValue())).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<KPI> chronological(List<KPI> kpis) {
+        List<KPI> sorted = new ArrayList<>(kpis);
+        sorted.sort(Comparator.comparing(KPI::getPeriodStart, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return sorted;
+    }
+}
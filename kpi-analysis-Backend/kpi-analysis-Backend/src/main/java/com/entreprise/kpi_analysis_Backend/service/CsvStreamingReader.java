@@ -0,0 +1,47 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming reader for CSV uploads.
+ *
+ * Lines are pulled lazily from the {@link CSVReader} and handed to the
+ * {@link SpreadsheetRowHandler} as soon as they are parsed, so only the
+ * current line is held in memory.
+ */
+public final class CsvStreamingReader {
+
+    private CsvStreamingReader() {
+    }
+
+    /**
+     * Read a UTF-8 CSV stream. The first line is used as header.
+     */
+    public static void read(InputStream inputStream, SpreadsheetRowHandler handler) throws Exception {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String[] headers = reader.readNext();
+            if (headers == null) {
+                return;
+            }
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = headers[i] != null ? headers[i].trim() : "";
+            }
+            handler.onHeader(headers);
+
+            String[] values;
+            while ((values = reader.readNext()) != null) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = values[i] != null ? values[i].trim() : "";
+                }
+                handler.onRow(values);
+            }
+        } catch (CsvException e) {
+            throw new Exception("Erreur lors de la lecture du fichier CSV: " + e.getMessage(), e);
+        }
+    }
+}
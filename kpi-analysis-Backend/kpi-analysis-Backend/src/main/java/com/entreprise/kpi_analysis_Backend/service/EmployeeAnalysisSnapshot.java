@@ -0,0 +1,101 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Everything an employee analysis reads, loaded once (see KPIRepository.findWithMetricsByEmployeeId)
+ * and shared by the prompt formatters, the rule-based engines and the fingerprint.
+ *
+ * The collections are unmodifiable and the snapshot is detached from the persistence context:
+ * nothing lazy is touched after loading, and the analysis is written back with update queries
+ * rather than by saving these entities.
+ */
+public final class EmployeeAnalysisSnapshot {
+
+    private final Employee employee;
+    private final List<KPI> kpis;
+    private final Map<Long, List<KPIMetric>> metricsByKpi;
+    private final List<KPIMetric> allMetrics;
+    private final String employeeData;
+    private final String kpiData;
+
+    /**
+     * @param kpis The employee's KPIs, with their metrics collection already fetched
+     */
+    public EmployeeAnalysisSnapshot(Employee employee, List<KPI> kpis) {
+        this.employee = employee;
+        this.kpis = List.copyOf(kpis);
+        Map<Long, List<KPIMetric>> byKpi = new LinkedHashMap<>();
+        for (KPI kpi : kpis) {
+            byKpi.put(kpi.getId(), kpi.getMetrics() != null ? List.copyOf(kpi.getMetrics()) : List.of());
+        }
+        this.metricsByKpi = Collections.unmodifiableMap(byKpi);
+        this.allMetrics = byKpi.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toUnmodifiableList());
+        this.employeeData = null;
+        this.kpiData = null;
+    }
+
+    private EmployeeAnalysisSnapshot(EmployeeAnalysisSnapshot data, String employeeData, String kpiData) {
+        this.employee = data.employee;
+        this.kpis = data.kpis;
+        this.metricsByKpi = data.metricsByKpi;
+        this.allMetrics = data.allMetrics;
+        this.employeeData = employeeData;
+        this.kpiData = kpiData;
+    }
+
+    /**
+     * Same data with the formatted prompt sections attached
+     */
+    public EmployeeAnalysisSnapshot withPrompts(String employeeData, String kpiData) {
+        return new EmployeeAnalysisSnapshot(this, employeeData, kpiData);
+    }
+
+    public Employee getEmployee() {
+        return employee;
+    }
+
+    public List<KPI> getKpis() {
+        return kpis;
+    }
+
+    public Map<Long, List<KPIMetric>> getMetricsByKpi() {
+        return metricsByKpi;
+    }
+
+    public List<KPIMetric> getMetrics(Long kpiId) {
+        return metricsByKpi.getOrDefault(kpiId, List.of());
+    }
+
+    public List<KPIMetric> getAllMetrics() {
+        return allMetrics;
+    }
+
+    /**
+     * Formatted employee section of the prompts; null when there are no metrics
+     */
+    public String getEmployeeData() {
+        return employeeData;
+    }
+
+    /**
+     * Formatted KPI section of the prompts; null when there are no metrics
+     */
+    public String getKpiData() {
+        return kpiData;
+    }
+
+    public String fingerprint() {
+        return AnalysisFingerprint.compute(employee, kpis, metricsByKpi);
+    }
+}
@@ -0,0 +1,74 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import com.entreprise.kpi_analysis_Backend.repository.EmployeeIdentity;
+import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Upload-scoped lookup of employee IDs by email and by first + last name.
+ *
+ * Loaded once per upload with a single projection query, then kept up to date as
+ * the upload creates employees, so resolving a row is a hash lookup instead of a query.
+ * Only IDs are stored; callers obtain entity references through the repository.
+ */
+class EmployeeResolutionIndex {
+
+    private final Map<String, Long> idsByEmail = new HashMap<>();
+    private final Map<String, Long> idsByName = new HashMap<>();
+
+    static EmployeeResolutionIndex load(EmployeeRepository employeeRepository) {
+        EmployeeResolutionIndex index = new EmployeeResolutionIndex();
+        List<EmployeeIdentity> identities = employeeRepository.findAllIdentities();
+        for (EmployeeIdentity identity : identities) {
+            index.register(identity.getId(), identity.getEmail(), identity.getFirstName(), identity.getLastName());
+        }
+        return index;
+    }
+
+    Long findByEmail(String email) {
+        String key = normalize(email);
+        return key.isEmpty() ? null : idsByEmail.get(key);
+    }
+
+    Long findByName(String firstName, String lastName) {
+        if (firstName == null || lastName == null) {
+            return null;
+        }
+        return idsByName.get(nameKey(firstName, lastName));
+    }
+
+    void register(Employee employee) {
+        register(employee.getId(), employee.getEmail(), employee.getFirstName(), employee.getLastName());
+    }
+
+    int size() {
+        return idsByEmail.size();
+    }
+
+    private void register(Long id, String email, String firstName, String lastName) {
+        if (id == null) {
+            return;
+        }
+        String emailKey = normalize(email);
+        if (!emailKey.isEmpty()) {
+            idsByEmail.putIfAbsent(emailKey, id);
+        }
+        if (firstName != null && lastName != null) {
+            // Keep the first (oldest) employee when several share the same name
+            idsByName.putIfAbsent(nameKey(firstName, lastName), id);
+        }
+    }
+
+    private static String nameKey(String firstName, String lastName) {
+        return normalize(firstName) + '\u0000' + normalize(lastName);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,12 +1,15 @@
 package com.entreprise.kpi_analysis_Backend.service;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
 import com.entreprise.kpi_analysis_Backend.dto.EmployeeDTO;
 import com.entreprise.kpi_analysis_Backend.entity.Employee;
 import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
 import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+import com.entreprise.kpi_analysis_Backend.repository.VersionStamp;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,12 +31,36 @@ public class EmployeeService {
         this.employeeRepository = employeeRepository;
     }
     
+    /**
+     * One keyset page of employees (by id), optionally filtered by department
+     */
     @Transactional(readOnly = true)
-    public List<EmployeeDTO> getAllEmployees() {
-        logger.debug("Fetching all employees from repository");
-        return employeeRepository.findAll().stream()
+    public CursorPage<EmployeeDTO> getEmployeesPage(String cursor, int size, String department) {
+        logger.debug("Fetching employees page after cursor {} (size {}, department {})", cursor, size, department);
+        List<EmployeeDTO> rows = employeeRepository.findPage(CursorPage.decodeCursor(cursor), department,
+                        PageRequest.of(0, size + 1)).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        return CursorPage.of(rows, size, EmployeeDTO::getId);
+    }
+    
+    /**
+     * Version of one page of the employees list for one department (all when null), without loading
+     * the rows. The page (cursor, size) is part of the key: each page has its own ETag
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getEmployeesVersion(String cursor, int size, String department) {
+        return ResourceVersion.of("employees:" + department + ":" + cursor + ":" + size,
+                employeeRepository.findVersionStamp(department));
+    }
+    
+    @Transactional(readOnly = true)
+    public ResourceVersion getEmployeeVersion(Long id) {
+        VersionStamp stamp = employeeRepository.findVersionStampById(id);
+        if (stamp.getCount() == 0) {
+            throw new ResourceNotFoundException("Employee", id);
+        }
+        return ResourceVersion.ofRow("employee:" + id, stamp);
     }
     
     @Transactional(readOnly = true)
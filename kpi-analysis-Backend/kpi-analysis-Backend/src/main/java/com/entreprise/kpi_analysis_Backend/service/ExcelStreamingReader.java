@@ -0,0 +1,131 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streaming reader for .xlsx files based on the POI event (SAX) API.
+ *
+ * Only the shared strings table is kept in memory; sheet rows are parsed and
+ * handed to the {@link SpreadsheetRowHandler} one at a time, so heap usage does
+ * not grow with the number of rows in the workbook.
+ *
+ * Numeric cells are reported with their raw value ("0.85", "1234.5"), not as displayed
+ * ("85%", "1 234,5"), so they parse like the values of a CSV file.
+ */
+public final class ExcelStreamingReader {
+
+    private ExcelStreamingReader() {
+    }
+
+    /**
+     * Read the first sheet of the workbook. The first non-empty row is used as header.
+     */
+    public static void read(File file, SpreadsheetRowHandler handler) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, sharedStrings, new RowCollector(handler), new RawNumberFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    /**
+     * Keeps the number format for dates only; other numbers are written as integers when
+     * they have no decimal part, as Double.toString otherwise
+     */
+    static class RawNumberFormatter extends DataFormatter {
+
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString,
+                                            boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString)) {
+                return super.formatRawCellContents(value, formatIndex, formatString, use1904Windowing);
+            }
+            if (value == (long) value) {
+                return String.valueOf((long) value);
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * Collects the cells of the current row and forwards complete rows to the handler
+     */
+    private static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final SpreadsheetRowHandler handler;
+        private final List<String> currentRow = new ArrayList<>();
+        private boolean headerRead = false;
+        private int nextColumn = 0;
+
+        RowCollector(SpreadsheetRowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            currentRow.clear();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (currentRow.isEmpty()) {
+                return;
+            }
+
+            String[] values = currentRow.toArray(new String[0]);
+            if (!headerRead) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = values[i].trim();
+                }
+                headerRead = true;
+                handler.onHeader(values);
+            } else {
+                handler.onRow(values);
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Empty cells are skipped by the SAX handler, so pad up to the referenced column
+            int column = cellReference != null
+                    ? new CellReference(cellReference).getCol()
+                    : nextColumn;
+            while (currentRow.size() < column) {
+                currentRow.add("");
+            }
+            currentRow.add(formattedValue != null ? formattedValue : "");
+            nextColumn = column + 1;
+        }
+    }
+}
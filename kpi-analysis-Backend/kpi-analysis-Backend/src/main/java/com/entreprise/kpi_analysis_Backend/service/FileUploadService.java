@@ -1,27 +1,41 @@
 package com.entreprise.kpi_analysis_Backend.service;
 
 import com.entreprise.kpi_analysis_Backend.dto.FileUploadResponse;
+import com.entreprise.kpi_analysis_Backend.entity.AnalysisRequest;
 import com.entreprise.kpi_analysis_Backend.entity.Employee;
 import com.entreprise.kpi_analysis_Backend.entity.KPI;
 import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import com.entreprise.kpi_analysis_Backend.entity.UploadCheckpoint;
+import com.entreprise.kpi_analysis_Backend.exception.UploadInProgressException;
+import com.entreprise.kpi_analysis_Backend.repository.AnalysisRequestRepository;
 import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+import com.entreprise.kpi_analysis_Backend.repository.KPIKey;
 import com.entreprise.kpi_analysis_Backend.repository.KPIRepository;
 import com.entreprise.kpi_analysis_Backend.repository.KPIMetricRepository;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.entreprise.kpi_analysis_Backend.repository.UploadCheckpointRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 
 /**
@@ -35,34 +49,69 @@ public class FileUploadService {
     private final EmployeeRepository employeeRepository;
     private final KPIRepository kpiRepository;
     private final KPIMetricRepository kpiMetricRepository;
-    private final AIAnalysisService aiAnalysisService;
+    private final AnalysisRequestRepository analysisRequestRepository;
+    private final AnalysisOutboxWorker analysisOutboxWorker;
+    private final UploadPipeline uploadPipeline;
+    private final PostgresBulkLoader bulkLoader;
+    private final UploadCheckpointRepository checkpointRepository;
+    private final PlatformTransactionManager transactionManager;
+    
+    // Rows committed per transaction; 0 keeps the whole file in a single transaction
+    @Value("${upload.chunk-size:1000}")
+    private int chunkSize;
+    
+    // An IN_PROGRESS checkpoint not updated for this long belongs to an import that stopped (crash)
+    @Value("${upload.checkpoint.stale-after-minutes:30}")
+    private long checkpointStaleAfterMinutes;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
     
     @Autowired
     public FileUploadService(
             EmployeeRepository employeeRepository,
             KPIRepository kpiRepository,
             KPIMetricRepository kpiMetricRepository,
-            AIAnalysisService aiAnalysisService) {
+            AnalysisRequestRepository analysisRequestRepository,
+            AnalysisOutboxWorker analysisOutboxWorker,
+            UploadPipeline uploadPipeline,
+            PostgresBulkLoader bulkLoader,
+            UploadCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager) {
         this.employeeRepository = employeeRepository;
         this.kpiRepository = kpiRepository;
         this.kpiMetricRepository = kpiMetricRepository;
-        this.aiAnalysisService = aiAnalysisService;
+        this.analysisRequestRepository = analysisRequestRepository;
+        this.analysisOutboxWorker = analysisOutboxWorker;
+        this.uploadPipeline = uploadPipeline;
+        this.bulkLoader = bulkLoader;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionManager = transactionManager;
     }
     
     /**
-     * Process uploaded file (Excel or CSV)
+     * Process an uploaded file (Excel or CSV) previously stored on disk.
+     * 
+     * Rows are committed in chunks of upload.chunk-size rows. Each chunk commits together
+     * with a checkpoint (file hash + last committed row), so uploading the same file for the
+     * same period after a failure resumes after the last committed chunk. While an import of
+     * a file and period is running, a second one of the same file and period is rejected.
+     * With upload.bulk-load.enabled on PostgreSQL, rows are loaded through COPY instead
+     * (see PostgresBulkLoader), in a single transaction.
+     * 
+     * AI analysis is not run here: each transaction records an analysis request per KPI it
+     * touched (outbox), and the AnalysisOutboxWorker is woken up once the data is committed.
+     * 
+     * @param file Stored copy of the upload
+     * @param fileName Original file name, used to detect the format
+     * @param progress Counters updated while the file is processed
      */
-    @Transactional
-    public FileUploadResponse processFile(MultipartFile file, LocalDate periodStart, LocalDate periodEnd) {
+    public FileUploadResponse processFile(Path file, String fileName, LocalDate periodStart, LocalDate periodEnd,
+                                          UploadProgress progress) {
         FileUploadResponse response = new FileUploadResponse();
-        List<String> warnings = new ArrayList<>();
-        List<String> errors = new ArrayList<>();
-        int employeesProcessed = 0;
-        int kpisCreated = 0;
-        int metricsCreated = 0;
+        UploadContext context = new UploadContext(periodStart, periodEnd, progress);
         
         try {
-            String fileName = file.getOriginalFilename();
             if (fileName == null || fileName.isEmpty()) {
                 response.setSuccess(false);
                 response.setMessage("Nom de fichier invalide");
@@ -70,70 +119,110 @@ public class FileUploadService {
             }
             
             logger.info("Processing file: {} for period: {} to {}", fileName, periodStart, periodEnd);
+            progress.setPhase(UploadProgress.Phase.PROCESSING);
             
-            List<Map<String, Object>> data;
-            
+            UploadPipeline.RowSource source;
             if (fileName.endsWith(".xlsx") || fileName.endsWith(".xls")) {
-                data = parseExcelFile(file.getInputStream());
+                source = handler -> ExcelStreamingReader.read(file.toFile(), handler);
             } else if (fileName.endsWith(".csv")) {
-                data = parseCSVFile(file.getInputStream());
+                source = handler -> {
+                    try (InputStream inputStream = Files.newInputStream(file)) {
+                        CsvStreamingReader.read(inputStream, handler);
+                    }
+                };
             } else {
                 response.setSuccess(false);
                 response.setMessage("Format de fichier non supporté. Utilisez .xlsx, .xls ou .csv");
                 return response;
             }
             
-            if (data.isEmpty()) {
-                response.setSuccess(false);
-                response.setMessage("Aucune donnée trouvée dans le fichier");
-                return response;
-            }
-            
-            // Process data and create KPIs
-            for (Map<String, Object> row : data) {
+            Map<String, Object> persistenceStats;
+            long resumeFrom = 0;
+            if (bulkLoader.isAvailable()) {
+                PostgresBulkLoader.Result result = bulkLoader.load(source, periodStart, periodEnd, progress);
+                context.rowsRead = (int) result.getRowsRead();
+                context.employeesProcessed = result.getEmployeesProcessed();
+                context.kpisCreated = result.getKpisCreated();
+                context.metricsCreated = result.getMetricsCreated();
+                context.errors.addAll(result.getErrors());
+                context.analysisRequested = result.getAnalysisRequested();
+                persistenceStats = result.toMap();
+            } else {
+                context.employeeIndex = EmployeeResolutionIndex.load(employeeRepository);
+                logger.debug("Employee resolution index loaded with {} employees", context.employeeIndex.size());
+                for (KPIKey key : kpiRepository.findKeysByPeriod(periodStart, periodEnd)) {
+                    context.kpiIdsByEmployee.put(key.getEmployeeId(), key.getId());
+                }
+                
+                context.checkpoint = startCheckpoint(file, fileName, periodStart, periodEnd);
+                resumeFrom = context.checkpoint.getLastCommittedRow();
+                if (resumeFrom > 0) {
+                    context.warnings.add("Reprise de l'import à partir de la ligne " + (resumeFrom + 1));
+                    logger.info("Resuming upload of {} after row {}", fileName, resumeFrom);
+                }
+                
+                // Parsing runs on its own thread; batches are written here, in chunk transactions
+                UploadPipeline.Stats pipelineStats;
                 try {
-                    Employee employee = findOrCreateEmployee(row);
-                    // Ensure employee has an ID (flush to database)
-                    if (employee.getId() == null) {
-                        employee = employeeRepository.saveAndFlush(employee);
-                    }
-                    
-                    KPI kpi = findOrCreateKPI(employee, periodStart, periodEnd);
-                    
-                    if (kpi.getId() == null) {
-                        kpi = kpiRepository.saveAndFlush(kpi);
-                        kpisCreated++;
-                    }
-                    
-                    // Create metrics from row data
-                    int metricsInRow = createMetricsFromRow(kpi, row);
-                    metricsCreated += metricsInRow;
-                    
-                    employeesProcessed++;
-                    
+                    pipelineStats = uploadPipeline.run(source, resumeFrom,
+                        (schema, rows, lastRowNumber) -> writeBatch(context, schema, rows, lastRowNumber), progress);
+                    commitChunk(context);
                 } catch (Exception e) {
-                    String errorMsg = String.format("Erreur lors du traitement de la ligne: %s", e.getMessage());
-                    errors.add(errorMsg);
-                    logger.error("Error processing row: {}", row, e);
-                    // Log full stack trace for debugging
-                    logger.error("Stack trace:", e);
+                    rollbackChunk(context);
+                    checkpointRepository.updateStatus(context.checkpoint.getId(),
+                        UploadCheckpoint.Status.FAILED, LocalDateTime.now());
+                    throw e;
                 }
+                checkpointRepository.updateStatus(context.checkpoint.getId(),
+                    UploadCheckpoint.Status.COMPLETED, LocalDateTime.now());
+                
+                persistenceStats = new LinkedHashMap<>();
+                persistenceStats.put("resumedFromRow", resumeFrom);
+                persistenceStats.put("chunksCommitted", context.chunksCommitted);
+                persistenceStats.putAll(pipelineStats.toMap());
+            }
+            
+            if (context.rowsRead == 0 && resumeFrom == 0) {
+                response.setSuccess(false);
+                response.setMessage("Aucune donnée trouvée dans le fichier");
+                return response;
             }
             
             response.setSuccess(true);
             response.setMessage(String.format(
                 "Fichier traité avec succès: %d employé(s) traité(s), %d KPI(s) créé(s), %d métrique(s) créée(s)",
-                employeesProcessed, kpisCreated, metricsCreated
+                context.employeesProcessed, context.kpisCreated, context.metricsCreated
             ));
-            response.setEmployeesProcessed(employeesProcessed);
-            response.setKpisCreated(kpisCreated);
-            response.setMetricsCreated(metricsCreated);
-            response.setWarnings(warnings);
-            response.setErrors(errors);
+            response.setEmployeesProcessed(context.employeesProcessed);
+            response.setKpisCreated(context.kpisCreated);
+            response.setMetricsCreated(context.metricsCreated);
+            response.setWarnings(context.warnings);
+            response.setErrors(context.errors);
+            // persistenceMode and rowsPerSecond compare the COPY and JPA paths on the same file
+            Map<String, Object> statistics = context.statistics();
+            statistics.put("persistenceMode", context.checkpoint == null ? "COPY" : "JPA");
+            statistics.put("analysisRequested", context.analysisRequested);
+            statistics.putAll(persistenceStats);
+            response.setStatistics(statistics);
             
-            logger.info("File processing completed: {} employees, {} KPIs, {} metrics", 
-                employeesProcessed, kpisCreated, metricsCreated);
+            logger.info("File processing completed: {} employees, {} KPIs, {} metrics in {} ms", 
+                context.employeesProcessed, context.kpisCreated, context.metricsCreated, context.elapsedMillis());
             
+            // Data is committed: start the analysis in the background, the response does not wait for it
+            if (context.analysisRequested > 0) {
+                context.warnings.add(String.format(
+                    "L'analyse IA de %d KPI(s) a été planifiée et sera disponible sous peu", context.analysisRequested));
+                analysisOutboxWorker.wakeUp();
+            }
+            
+        } catch (TaskRejectedException e) {
+            // No parser thread: reported as 503 for a synchronous upload
+            throw e;
+        } catch (UploadInProgressException e) {
+            logger.warn("Upload rejected: {}", e.getMessage());
+            response.setSuccess(false);
+            response.setMessage("Un import de ce fichier pour la même période est déjà en cours");
+            response.setErrors(List.of(e.getMessage()));
         } catch (Exception e) {
             logger.error("Error processing file", e);
             response.setSuccess(false);
@@ -141,195 +230,204 @@ public class FileUploadService {
             if (e.getCause() != null) {
                 response.setMessage(response.getMessage() + " - Cause: " + e.getCause().getMessage());
             }
-            response.setErrors(List.of(e.getMessage()));
-        }
-        
-        // Trigger AI analysis AFTER transaction commits (outside @Transactional)
-        if (response.isSuccess() && kpisCreated > 0) {
-            try {
-                logger.info("Triggering AI analysis for {} new KPIs", kpisCreated);
-                List<KPI> newKPIs = kpiRepository.findByPeriodStartAndPeriodEnd(periodStart, periodEnd);
-                for (KPI kpi : newKPIs) {
-                    try {
-                        aiAnalysisService.updateKPIWithAnalysis(kpi.getId());
-                    } catch (Exception e) {
-                        warnings.add("L'analyse IA n'a pas pu être générée pour le KPI ID: " + kpi.getId());
-                        logger.warn("Failed to generate AI analysis for KPI: {}", kpi.getId(), e);
-                    }
-                }
-                response.setWarnings(warnings);
-            } catch (Exception e) {
-                logger.warn("Failed to trigger AI analysis after file upload", e);
-                warnings.add("L'analyse IA n'a pas pu être déclenchée automatiquement");
-                response.setWarnings(warnings);
-            }
+            response.setErrors(List.of(String.valueOf(e.getMessage())));
         }
         
         return response;
     }
     
     /**
-     * Parse Excel file (.xlsx, .xls)
+     * Persist a single data row: resolve employee and KPI, then create its metrics
      */
-    private List<Map<String, Object>> parseExcelFile(InputStream inputStream) throws Exception {
-        List<Map<String, Object>> data = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0); // First sheet
+    private void processRow(UploadContext context, String[] values) {
+        context.rowsRead++;
+        try {
+            // IDs come from pooled sequences, so save() does not hit the database:
+            // inserts are queued and sent in JDBC batches at flush time
+            Employee employee = findOrCreateEmployee(context, values);
             
-            if (sheet.getPhysicalNumberOfRows() < 2) {
-                return data; // Need at least header + 1 data row
+            KPI kpi = findOrCreateKPI(context, employee);
+            if (context.kpisToAnalyze.add(kpi.getId())) {
+                context.pendingAnalysis.add(new AnalysisRequest(kpi.getId(), employee.getId()));
             }
             
-            Row headerRow = sheet.getRow(0);
-            List<String> headers = new ArrayList<>();
+            // Create metrics from row data
+            int metricsInRow = createMetricsFromRow(context.schema, kpi, values);
+            context.metricsCreated += metricsInRow;
             
-            // Read headers
-            for (Cell cell : headerRow) {
-                headers.add(getCellValueAsString(cell).trim());
-            }
+            context.employeesProcessed++;
+            // Reported as persisted once its chunk commits
+            context.rowsPersistedInChunk++;
             
-            // Read data rows
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-                
-                Map<String, Object> rowData = new HashMap<>();
-                boolean hasData = false;
-                
-                for (int j = 0; j < headers.size() && j < row.getLastCellNum(); j++) {
-                    Cell cell = row.getCell(j);
-                    String value = getCellValueAsString(cell);
-                    if (!value.isEmpty()) {
-                        hasData = true;
-                    }
-                    rowData.put(headers.get(j), value);
-                }
-                
-                if (hasData) {
-                    data.add(rowData);
-                }
-            }
+        } catch (Exception e) {
+            String errorMsg = String.format("Erreur lors du traitement de la ligne: %s", e.getMessage());
+            context.errors.add(errorMsg);
+            context.progress.rowFailed();
+            logger.error("Error processing row: {}", Arrays.toString(values), e);
         }
-        
-        return data;
     }
     
     /**
-     * Parse CSV file using OpenCSV
+     * Writer stage of the pipeline: persist a batch of rows, then flush so the
+     * queued inserts go out as JDBC batches while the parser keeps reading.
+     * The chunk is committed once it holds at least upload.chunk-size rows.
      */
-    private List<Map<String, Object>> parseCSVFile(InputStream inputStream) throws Exception {
-        List<Map<String, Object>> data = new ArrayList<>();
+    private void writeBatch(UploadContext context, UploadRowSchema schema, List<String[]> rows, long lastRowNumber) {
+        if (context.transaction == null) {
+            context.transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        }
+        context.schema = schema;
+        for (String[] values : rows) {
+            processRow(context, values);
+        }
+        entityManager.flush();
+        context.rowsInChunk += rows.size();
+        context.lastRowNumber = lastRowNumber;
         
-        try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            List<String[]> allRows = reader.readAll();
-            
-            if (allRows.isEmpty()) {
-                return data;
-            }
-            
-            // First row is headers
-            String[] headers = allRows.get(0);
-            for (int i = 0; i < headers.length; i++) {
-                headers[i] = headers[i].trim();
+        if (chunkSize > 0 && context.rowsInChunk >= chunkSize) {
+            commitChunk(context);
+        }
+    }
+    
+    /**
+     * Commit the open chunk together with its checkpoint, then detach its entities
+     * so the persistence context does not grow with the file
+     */
+    private void commitChunk(UploadContext context) {
+        if (context.transaction == null) {
+            return;
+        }
+        // Outbox entries commit atomically with the rows they refer to
+        if (!context.pendingAnalysis.isEmpty()) {
+            // A KPI already waiting for analysis (earlier upload) needs no second request
+            Set<Long> alreadyPending = new HashSet<>(analysisRequestRepository.findKpiIdsByStatus(
+                AnalysisRequest.Status.PENDING,
+                context.pendingAnalysis.stream().map(AnalysisRequest::getKpiId).toList()));
+            List<AnalysisRequest> requests = context.pendingAnalysis.stream()
+                .filter(request -> !alreadyPending.contains(request.getKpiId()))
+                .toList();
+            analysisRequestRepository.saveAll(requests);
+            context.analysisRequested += requests.size();
+            context.pendingAnalysis.clear();
+        }
+        entityManager.flush();
+        checkpointRepository.updateLastCommittedRow(
+            context.checkpoint.getId(), context.lastRowNumber, LocalDateTime.now());
+        entityManager.clear();
+        transactionManager.commit(context.transaction);
+        context.progress.rowsPersisted(context.rowsPersistedInChunk);
+        context.transaction = null;
+        context.rowsInChunk = 0;
+        context.rowsPersistedInChunk = 0;
+        context.chunksCommitted++;
+        logger.debug("Upload chunk committed up to row {}", context.lastRowNumber);
+    }
+    
+    private void rollbackChunk(UploadContext context) {
+        if (context.transaction != null && !context.transaction.isCompleted()) {
+            try {
+                transactionManager.rollback(context.transaction);
+            } catch (Exception e) {
+                logger.warn("Failed to roll back upload chunk", e);
             }
-            
-            // Process data rows
-            for (int i = 1; i < allRows.size(); i++) {
-                String[] values = allRows.get(i);
-                Map<String, Object> rowData = new HashMap<>();
-                boolean hasData = false;
-                
-                for (int j = 0; j < headers.length && j < values.length; j++) {
-                    String value = values[j] != null ? values[j].trim() : "";
-                    if (!value.isEmpty()) {
-                        hasData = true;
-                    }
-                    rowData.put(headers[j], value);
-                }
-                
-                if (hasData) {
-                    data.add(rowData);
-                }
+        }
+        context.transaction = null;
+        context.rowsPersistedInChunk = 0;
+    }
+    
+    /**
+     * Find the checkpoint of an earlier import of the same file and period, or start a new one.
+     * A completed checkpoint is reset so that re-uploading the file imports it again.
+     * Throws UploadInProgressException when another import of the file and period holds it.
+     */
+    private UploadCheckpoint startCheckpoint(Path file, String fileName, LocalDate periodStart, LocalDate periodEnd)
+            throws IOException {
+        String fileHash = hashFile(file);
+        Optional<UploadCheckpoint> existing = checkpointRepository
+            .findByFileHashAndPeriodStartAndPeriodEnd(fileHash, periodStart, periodEnd);
+        if (existing.isPresent()) {
+            // Conditional update, so two imports cannot both take the checkpoint over
+            LocalDateTime now = LocalDateTime.now();
+            int claimed = checkpointRepository.claim(existing.get().getId(), fileName, now,
+                now.minusMinutes(checkpointStaleAfterMinutes));
+            if (claimed == 0) {
+                throw uploadInProgress(fileName);
             }
-        } catch (CsvException e) {
-            logger.error("Error parsing CSV file", e);
-            throw new Exception("Erreur lors de la lecture du fichier CSV: " + e.getMessage());
+            return checkpointRepository.findById(existing.get().getId()).orElseThrow();
         }
         
-        return data;
+        UploadCheckpoint created = new UploadCheckpoint();
+        created.setFileHash(fileHash);
+        created.setPeriodStart(periodStart);
+        created.setPeriodEnd(periodEnd);
+        created.setFileName(fileName);
+        created.setStatus(UploadCheckpoint.Status.IN_PROGRESS);
+        try {
+            return checkpointRepository.saveAndFlush(created);
+        } catch (DataIntegrityViolationException e) {
+            // Unique (file_hash, period_start, period_end): a concurrent import created it first
+            throw uploadInProgress(fileName);
+        }
+    }
+    
+    private static UploadInProgressException uploadInProgress(String fileName) {
+        return new UploadInProgressException(
+            "An import of " + fileName + " for the same period is already in progress");
     }
     
     /**
-     * Get cell value as string
+     * SHA-256 of the file content, hex encoded
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) return "";
-        
-        switch (cell.getCellType()) {
-            case STRING:
-                return cell.getStringCellValue();
-            case NUMERIC:
-                if (DateUtil.isCellDateFormatted(cell)) {
-                    return cell.getDateCellValue().toString();
-                } else {
-                    // Format as integer if no decimal part
-                    double numValue = cell.getNumericCellValue();
-                    if (numValue == (long) numValue) {
-                        return String.valueOf((long) numValue);
-                    } else {
-                        return String.valueOf(numValue);
-                    }
-                }
-            case BOOLEAN:
-                return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:
-                return cell.getCellFormula();
-            default:
-                return "";
+    private static String hashFile(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
         }
+        return HexFormat.of().formatHex(digest.digest());
     }
     
     /**
-     * Find or create employee from row data
+     * Find or create employee from row data, using the upload's resolution index
      */
-    private Employee findOrCreateEmployee(Map<String, Object> row) {
+    private Employee findOrCreateEmployee(UploadContext context, String[] values) {
+        EmployeeResolutionIndex index = context.employeeIndex;
+        UploadRowSchema schema = context.schema;
+        
         // Try to find by email first (most reliable)
-        String email = getStringValue(row, "email", "Email", "Email", "e-mail");
+        String email = schema.email(values);
         if (email != null && !email.isEmpty()) {
-            return employeeRepository.findByEmail(email)
-                .orElseGet(() -> createEmployeeFromRow(row));
+            Long employeeId = index.findByEmail(email);
+            return employeeId != null
+                ? employeeRepository.getReferenceById(employeeId)
+                : createEmployeeFromRow(context, values);
         }
         
         // Try to find by name
-        String firstName = getStringValue(row, "firstName", "first_name", "First Name", "Prénom", "prenom");
-        String lastName = getStringValue(row, "lastName", "last_name", "Last Name", "Nom", "nom");
-        
-        if (firstName != null && lastName != null) {
-            // Check if employee exists (simple check - could be improved)
-            List<Employee> allEmployees = employeeRepository.findAll();
-            for (Employee emp : allEmployees) {
-                if (emp.getFirstName().equalsIgnoreCase(firstName) && 
-                    emp.getLastName().equalsIgnoreCase(lastName)) {
-                    return emp;
-                }
-            }
+        Long employeeId = index.findByName(schema.firstName(values), schema.lastName(values));
+        if (employeeId != null) {
+            return employeeRepository.getReferenceById(employeeId);
         }
         
-        return createEmployeeFromRow(row);
+        return createEmployeeFromRow(context, values);
     }
     
     /**
-     * Create employee from row data
+     * Create employee from row data and register it in the upload's resolution index
      */
-    private Employee createEmployeeFromRow(Map<String, Object> row) {
+    private Employee createEmployeeFromRow(UploadContext context, String[] values) {
         Employee employee = new Employee();
+        UploadRowSchema schema = context.schema;
         
-        String firstName = getStringValue(row, "firstName", "first_name", "First Name", "Prénom", "prenom");
-        String lastName = getStringValue(row, "lastName", "last_name", "Last Name", "Nom", "nom");
-        String email = getStringValue(row, "email", "Email", "Email", "e-mail");
-        String department = getStringValue(row, "department", "Department", "Département", "departement", "Dept", "dept");
-        String position = getStringValue(row, "position", "Position", "Poste", "poste", "Job", "job", "Role", "role");
+        String firstName = schema.firstName(values);
+        String lastName = schema.lastName(values);
+        String email = schema.email(values);
+        String department = schema.department(values);
+        String position = schema.position(values);
         
         // Validate required fields
         if (firstName == null || firstName.trim().isEmpty()) {
@@ -340,6 +438,11 @@ public class FileUploadService {
         }
         if (email == null || email.trim().isEmpty()) {
             email = generateEmail(firstName, lastName);
+            // A generated address may already belong to an employee
+            Long existingId = context.employeeIndex.findByEmail(email);
+            if (existingId != null) {
+                return employeeRepository.getReferenceById(existingId);
+            }
         }
         if (department == null || department.trim().isEmpty()) {
             department = "Non spécifié";
@@ -354,7 +457,9 @@ public class FileUploadService {
         employee.setDepartment(department.trim());
         employee.setPosition(position.trim());
         
-        return employeeRepository.save(employee);
+        Employee savedEmployee = employeeRepository.save(employee);
+        context.employeeIndex.register(savedEmployee);
+        return savedEmployee;
     }
     
     /**
@@ -369,99 +474,62 @@ public class FileUploadService {
     }
     
     /**
-     * Find or create KPI for employee and period
+     * Find or create KPI for employee and period, using the KPIs prefetched for the upload's period
      */
-    private KPI findOrCreateKPI(Employee employee, LocalDate periodStart, LocalDate periodEnd) {
-        List<KPI> existingKPIs = kpiRepository.findByEmployeeId(employee.getId());
-        
-        for (KPI kpi : existingKPIs) {
-            if (kpi.getPeriodStart().equals(periodStart) && kpi.getPeriodEnd().equals(periodEnd)) {
-                return kpi;
-            }
+    private KPI findOrCreateKPI(UploadContext context, Employee employee) {
+        Long kpiId = context.kpiIdsByEmployee.get(employee.getId());
+        if (kpiId != null) {
+            return kpiRepository.getReferenceById(kpiId);
         }
         
         // Create new KPI
         KPI kpi = new KPI();
         kpi.setEmployee(employee);
-        kpi.setPeriodStart(periodStart);
-        kpi.setPeriodEnd(periodEnd);
+        kpi.setPeriodStart(context.periodStart);
+        kpi.setPeriodEnd(context.periodEnd);
         
-        return kpi;
+        KPI savedKPI = kpiRepository.save(kpi);
+        context.kpiIdsByEmployee.put(employee.getId(), savedKPI.getId());
+        context.kpisCreated++;
+        return savedKPI;
     }
     
     /**
-     * Create metrics from row data
+     * Create metrics from row data by walking the metric columns of the compiled schema
      */
-    private int createMetricsFromRow(KPI kpi, Map<String, Object> row) {
+    private int createMetricsFromRow(UploadRowSchema schema, KPI kpi, String[] values) {
         int metricsCreated = 0;
+        Double targetValue = null;
+        boolean targetResolved = false;
         
-        // Map common column names to metric types
-        Map<String, KPIMetric.MetricType> metricMappings = new HashMap<>();
-        metricMappings.put("attendance", KPIMetric.MetricType.ATTENDANCE);
-        metricMappings.put("assiduité", KPIMetric.MetricType.ATTENDANCE);
-        metricMappings.put("assiduite", KPIMetric.MetricType.ATTENDANCE);
-        metricMappings.put("présence", KPIMetric.MetricType.ATTENDANCE);
-        metricMappings.put("presence", KPIMetric.MetricType.ATTENDANCE);
-        metricMappings.put("velocity", KPIMetric.MetricType.VELOCITY);
-        metricMappings.put("vélocité", KPIMetric.MetricType.VELOCITY);
-        metricMappings.put("velocite", KPIMetric.MetricType.VELOCITY);
-        metricMappings.put("quality", KPIMetric.MetricType.QUALITY);
-        metricMappings.put("qualité", KPIMetric.MetricType.QUALITY);
-        metricMappings.put("qualite", KPIMetric.MetricType.QUALITY);
-        metricMappings.put("productivity", KPIMetric.MetricType.PRODUCTIVITY);
-        metricMappings.put("productivité", KPIMetric.MetricType.PRODUCTIVITY);
-        metricMappings.put("productivite", KPIMetric.MetricType.PRODUCTIVITY);
-        metricMappings.put("efficiency", KPIMetric.MetricType.EFFICIENCY);
-        metricMappings.put("efficacité", KPIMetric.MetricType.EFFICIENCY);
-        metricMappings.put("efficacite", KPIMetric.MetricType.EFFICIENCY);
-        
-        for (Map.Entry<String, Object> entry : row.entrySet()) {
-            String columnName = entry.getKey().toLowerCase().trim();
-            Object value = entry.getValue();
-            
-            // Check if this column matches a metric type
-            KPIMetric.MetricType metricType = null;
-            for (Map.Entry<String, KPIMetric.MetricType> mapping : metricMappings.entrySet()) {
-                if (columnName.contains(mapping.getKey())) {
-                    metricType = mapping.getValue();
-                    break;
-                }
+        for (UploadRowSchema.MetricColumn column : schema.metricColumns()) {
+            String value = UploadRowSchema.value(values, column.getIndex());
+            if (value == null || value.isEmpty()) {
+                continue;
             }
             
-            if (metricType != null && value != null) {
-                try {
-                    double doubleValue = parseDouble(value);
-                    
-                    // Check for target value (column name might contain "target", "objectif", "goal")
-                    Double targetValue = null;
-                    for (Map.Entry<String, Object> targetEntry : row.entrySet()) {
-                        String targetColumnName = targetEntry.getKey().toLowerCase();
-                        if (targetColumnName.contains("target") ||
-                            targetColumnName.contains("objectif") ||
-                            targetColumnName.contains("goal")) {
-                            try {
-                                targetValue = parseDouble(targetEntry.getValue());
-                                break;
-                            } catch (NumberFormatException e) {
-                                // Continue searching
-                            }
-                        }
-                    }
-                    
-                    // Create metric
-                    KPIMetric metric = new KPIMetric();
-                    metric.setKpi(kpi);
-                    metric.setMetricType(metricType);
-                    metric.setValue(doubleValue);
-                    metric.setTargetValue(targetValue);
-                    metric.setUnit("%");
-                    
-                    kpiMetricRepository.save(metric);
-                    metricsCreated++;
-                    
-                } catch (NumberFormatException e) {
-                    logger.warn("Could not parse value for column {}: {}", columnName, value);
+            try {
+                double doubleValue = UploadRowSchema.parseDouble(value);
+                
+                // Target comes from the first parseable "target"/"objectif"/"goal" column
+                if (!targetResolved) {
+                    targetValue = schema.targetValue(values);
+                    targetResolved = true;
                 }
+                
+                // Create metric
+                KPIMetric metric = new KPIMetric();
+                metric.setKpi(kpi);
+                metric.setMetricType(column.getMetricType());
+                metric.setValue(doubleValue);
+                metric.setTargetValue(targetValue);
+                metric.setUnit("%");
+                
+                kpiMetricRepository.save(metric);
+                metricsCreated++;
+                
+            } catch (NumberFormatException e) {
+                logger.warn("Could not parse value for column {}: {}", column.getName(), value);
             }
         }
         
@@ -469,32 +537,55 @@ public class FileUploadService {
     }
     
     /**
-     * Parse value to double
+     * Mutable state of a single upload (period and running counters)
      */
-    private double parseDouble(Object value) {
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+    private static class UploadContext {
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final UploadProgress progress;
+        private final List<String> warnings = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        private int rowsRead = 0;
+        private int employeesProcessed = 0;
+        private int kpisCreated = 0;
+        private int metricsCreated = 0;
+        private final long startedAt = System.nanoTime();
+        private EmployeeResolutionIndex employeeIndex;
+        private UploadRowSchema schema;
+        // KPI of the upload's period per employee ID (unique per employee and period)
+        private final Map<Long, Long> kpiIdsByEmployee = new HashMap<>();
+        // Current chunk: open transaction, rows written in it and last data row number covered
+        private UploadCheckpoint checkpoint;
+        private TransactionStatus transaction;
+        private int rowsInChunk = 0;
+        private int rowsPersistedInChunk = 0;
+        private long lastRowNumber = 0;
+        private int chunksCommitted = 0;
+        // KPIs touched by the upload and outbox entries of the current chunk
+        private final Set<Long> kpisToAnalyze = new HashSet<>();
+        private final List<AnalysisRequest> pendingAnalysis = new ArrayList<>();
+        private int analysisRequested = 0;
+        
+        UploadContext(LocalDate periodStart, LocalDate periodEnd, UploadProgress progress) {
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.progress = progress;
         }
-        if (value instanceof String) {
-            String str = ((String) value).trim().replace(",", ".");
-            return Double.parseDouble(str);
+        
+        long elapsedMillis() {
+            return (System.nanoTime() - startedAt) / 1_000_000;
         }
-        throw new NumberFormatException("Cannot parse: " + value);
-    }
-    
-    /**
-     * Get string value from row with multiple possible keys
-     */
-    private String getStringValue(Map<String, Object> row, String... keys) {
-        for (String key : keys) {
-            for (Map.Entry<String, Object> entry : row.entrySet()) {
-                if (entry.getKey().equalsIgnoreCase(key)) {
-                    Object value = entry.getValue();
-                    return value != null ? value.toString().trim() : null;
-                }
-            }
+        
+        /**
+         * Timing figures reported with the upload response (used to compare persistence modes)
+         */
+        Map<String, Object> statistics() {
+            long elapsed = Math.max(elapsedMillis(), 1);
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("rowsRead", rowsRead);
+            statistics.put("durationMs", elapsed);
+            statistics.put("rowsPerSecond", Math.round(rowsRead * 1000.0 / elapsed));
+            return statistics;
         }
-        return null;
     }
 }
-
@@ -0,0 +1,145 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker in front of the Groq API.
+ *
+ * CLOSED: calls go through; after failure-threshold consecutive failures the circuit opens.
+ * OPEN: calls are refused at once (callers fall back to the rule-based analysis) until the
+ * cool-down has elapsed. HALF_OPEN: a limited number of probe calls go through; a successful
+ * probe closes the circuit, a failed one opens it again for another cool-down.
+ *
+ * Metrics: groq.circuit.state (0 closed, 1 open, 2 half-open), groq.circuit.transitions{from, to}
+ * and groq.circuit.rejected.
+ */
+@Component
+public class GroqCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroqCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos = 0;
+    private int probesInFlight = 0;
+
+    @Autowired
+    public GroqCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${groq.circuit-breaker.enabled:true}") boolean enabled,
+            @Value("${groq.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${groq.circuit-breaker.open-seconds:60}") long openSeconds,
+            @Value("${groq.circuit-breaker.half-open-probes:1}") int halfOpenProbes) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = Duration.ofSeconds(openSeconds).toNanos();
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+
+        Gauge.builder("groq.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("Groq circuit breaker state (0 closed, 1 open, 2 half-open)")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("groq.circuit.rejected")
+                .description("Groq calls short-circuited while the breaker was open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether a call may go to Groq now. Every permitted call must be followed by exactly one of
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!enabled) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && probesInFlight < halfOpenProbes) {
+            probesInFlight++;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void onSuccess() {
+        if (!enabled) {
+            return;
+        }
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            probesInFlight = 0;
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (!enabled) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight = 0;
+            open();
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Release a permit without a verdict (call cancelled, or failed for a reason unrelated to Groq's health)
+     */
+    public synchronized void onIgnored() {
+        if (enabled && state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void open() {
+        openedAtNanos = System.nanoTime();
+        consecutiveFailures = 0;
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        if (state == to) {
+            return;
+        }
+        State from = state;
+        state = to;
+        meterRegistry.counter("groq.circuit.transitions", "from", from.name(), "to", to.name()).increment();
+        if (to == State.OPEN) {
+            logger.warn("Groq circuit breaker opened: rule-based analysis for the next {} s",
+                    Duration.ofNanos(openNanos).toSeconds());
+        } else {
+            logger.info("Groq circuit breaker {} -> {}", from, to);
+        }
+    }
+}
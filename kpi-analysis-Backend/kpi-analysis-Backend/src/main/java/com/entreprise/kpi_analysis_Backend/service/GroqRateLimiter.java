@@ -0,0 +1,185 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side scheduler for Groq calls: a token bucket on requests per minute and one on
+ * tokens per minute.
+ *
+ * Each call reserves one request and its estimated tokens up front. Reservations are taken
+ * under a lock and may push a bucket below zero, so every caller gets a start time after the
+ * callers before it: calls queue in arrival order (delayed without holding a thread) instead
+ * of failing with 429. Estimates are corrected with the usage block of each response, and the
+ * buckets are lowered to the x-ratelimit-remaining-* headers when Groq reports less than we
+ * think is left. A 429 pauses every call until its retry-after.
+ */
+@Component
+public class GroqRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroqRateLimiter.class);
+
+    // e.g. "1m30.5s", "7.66s", "120ms"
+    private static final Pattern DURATION = Pattern.compile("(?:(\\d+)h)?(?:(\\d+)m(?!s))?(?:([\\d.]+)s)?(?:(\\d+)ms)?");
+
+    private final boolean enabled;
+    private final Bucket requests;
+    private final Bucket tokens;
+    private long pausedUntilNanos = 0;
+
+    @Autowired
+    public GroqRateLimiter(
+            @Value("${groq.rate-limit.enabled:true}") boolean enabled,
+            @Value("${groq.rate-limit.requests-per-minute:30}") int requestsPerMinute,
+            @Value("${groq.rate-limit.tokens-per-minute:6000}") int tokensPerMinute) {
+        this.enabled = enabled;
+        this.requests = new Bucket(requestsPerMinute);
+        this.tokens = new Bucket(tokensPerMinute);
+    }
+
+    /**
+     * Completes when a call of the given estimated size may start
+     */
+    public Mono<Void> acquire(int estimatedTokens) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        Duration wait = reserve(estimatedTokens);
+        if (wait.isZero()) {
+            return Mono.empty();
+        }
+        logger.debug("Groq call delayed by {} ms by the rate limiter", wait.toMillis());
+        return Mono.delay(wait).then();
+    }
+
+    /**
+     * Take one request and the estimated tokens from the buckets; returns how long the call must wait
+     */
+    synchronized Duration reserve(int estimatedTokens) {
+        long now = System.nanoTime();
+        requests.refill(now);
+        tokens.refill(now);
+        // A reservation larger than a whole minute of tokens could never be satisfied
+        double tokenCost = Math.min(estimatedTokens, tokens.capacity);
+        long waitNanos = Math.max(pausedUntilNanos - now,
+                Math.max(requests.nanosUntil(1), tokens.nanosUntil(tokenCost)));
+        requests.available -= 1;
+        tokens.available -= tokenCost;
+        return Duration.ofNanos(Math.max(waitNanos, 0));
+    }
+
+    /**
+     * Correct the token reservation of a finished call with the tokens it actually used
+     */
+    public synchronized void recordUsage(int estimatedTokens, int actualTokens) {
+        if (enabled && actualTokens > 0) {
+            tokens.available += Math.min(estimatedTokens, tokens.capacity) - actualTokens;
+        }
+    }
+
+    /**
+     * Align the buckets with the rate-limit headers of a response (success or error)
+     */
+    public synchronized void updateFromHeaders(HttpHeaders headers) {
+        if (!enabled || headers == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        lowerTo(requests, headers.getFirst("x-ratelimit-remaining-requests"), now);
+        lowerTo(tokens, headers.getFirst("x-ratelimit-remaining-tokens"), now);
+    }
+
+    /**
+     * Stop every call for the given duration (after a 429)
+     */
+    public synchronized void pause(Duration duration) {
+        if (enabled) {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + duration.toNanos());
+            logger.warn("Groq rate limit reached, calls paused for {} ms", duration.toMillis());
+        }
+    }
+
+    /**
+     * Parse a retry-after or x-ratelimit-reset-* value: plain seconds or a Go-style duration
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            return Duration.ofMillis(Math.round(Double.parseDouble(trimmed) * 1000));
+        } catch (NumberFormatException e) {
+            // Not plain seconds
+        }
+        Matcher matcher = DURATION.matcher(trimmed);
+        if (!matcher.matches()) {
+            return null;
+        }
+        double millis = 0;
+        if (matcher.group(1) != null) {
+            millis += Long.parseLong(matcher.group(1)) * 3_600_000d;
+        }
+        if (matcher.group(2) != null) {
+            millis += Long.parseLong(matcher.group(2)) * 60_000d;
+        }
+        if (matcher.group(3) != null) {
+            millis += Double.parseDouble(matcher.group(3)) * 1000;
+        }
+        if (matcher.group(4) != null) {
+            millis += Long.parseLong(matcher.group(4));
+        }
+        return Duration.ofMillis(Math.round(millis));
+    }
+
+    private void lowerTo(Bucket bucket, String remaining, long now) {
+        if (remaining == null) {
+            return;
+        }
+        try {
+            bucket.refill(now);
+            double reported = Double.parseDouble(remaining.trim());
+            if (reported < bucket.available) {
+                bucket.available = reported;
+            }
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring unparseable rate-limit header value: {}", remaining);
+        }
+    }
+
+    /**
+     * Continuously refilled bucket; available may be negative (reserved ahead)
+     */
+    private static final class Bucket {
+        private final double capacity;
+        private final double refillPerNano;
+        private double available;
+        private long lastRefillNanos;
+
+        Bucket(int perMinute) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / 60_000_000_000d;
+            this.available = perMinute;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+        }
+
+        long nanosUntil(double amount) {
+            double missing = amount - available;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+        }
+    }
+}
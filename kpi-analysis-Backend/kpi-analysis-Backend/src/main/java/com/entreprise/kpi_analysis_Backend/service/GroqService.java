@@ -2,19 +2,26 @@ package com.entreprise.kpi_analysis_Backend.service;
 
 import com.entreprise.kpi_analysis_Backend.dto.GroqRequest;
 import com.entreprise.kpi_analysis_Backend.dto.GroqResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service for interacting with Groq AI API
@@ -24,17 +31,30 @@ public class GroqService {
     
     private static final Logger logger = LoggerFactory.getLogger(GroqService.class);
     
+    private static final int MAX_RETRIES = 2;
+    private static final Duration RETRY_BACKOFF = Duration.ofSeconds(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
     private final WebClient webClient;
     private final String apiKey;
     private final String apiUrl;
     private final String model;
     private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final GroqRateLimiter rateLimiter;
+    private final GroqCircuitBreaker circuitBreaker;
     
     public GroqService(
             WebClient.Builder webClientBuilder,
+            LlmResponseCache responseCache,
+            GroqRateLimiter rateLimiter,
+            GroqCircuitBreaker circuitBreaker,
             @Value("${groq.api.key}") String apiKey,
             @Value("${groq.api.url}") String apiUrl,
             @Value("${groq.model}") String model) {
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
         this.apiKey = apiKey;
         this.apiUrl = apiUrl;
         this.model = model;
@@ -48,62 +68,278 @@ public class GroqService {
     }
     
     /**
-     * Generate AI response using Groq API
+     * Generate AI response using Groq API without blocking the calling thread.
+     * Errors are not signalled: like the blocking variant, the Mono completes with an "Erreur..." message.
+     * Successful responses are cached by request content (see LlmResponseCache); errors never are.
      * 
      * @param systemPrompt System prompt to set the AI's behavior
      * @param userPrompt User prompt with the actual request
      * @return AI-generated response
      */
-    public String generateResponse(String systemPrompt, String userPrompt) {
+    public Mono<String> generateResponseAsync(String systemPrompt, String userPrompt) {
+        logger.debug("Sending request to Groq API with model: {}", model);
+        
+        GroqRequest request = buildRequest(systemPrompt, userPrompt);
+        String cacheKey = cacheKey(request, systemPrompt, userPrompt);
+        return Mono.defer(() -> responseCache.lookup(cacheKey))
+                .doOnNext(content -> logger.debug("Groq response served from cache"))
+                .switchIfEmpty(Mono.defer(() -> callApi(request, cacheKey)));
+    }
+    
+    /**
+     * Streaming variant of {@link #generateResponseAsync(String, String)}: emits the completion in
+     * chunks as Groq generates them (stream=true, server-sent events).
+     * Unlike the non-streaming call, failures are signalled as errors (the caller decides how to fall
+     * back, depending on what it has already relayed) and nothing is retried once output has started.
+     * A cached response is emitted as a single chunk; a completed stream is cached like any response.
+     */
+    public Flux<String> generateResponseStream(String systemPrompt, String userPrompt) {
+        GroqRequest request = buildRequest(systemPrompt, userPrompt);
+        String cacheKey = cacheKey(request, systemPrompt, userPrompt);
+        return Mono.defer(() -> responseCache.lookup(cacheKey))
+                .flux()
+                .switchIfEmpty(Flux.defer(() -> streamApi(request, cacheKey)));
+    }
+    
+    private Flux<String> streamApi(GroqRequest request, String cacheKey) {
+        if (!circuitBreaker.tryAcquire()) {
+            return Flux.error(new IllegalStateException("API Groq temporairement indisponible (circuit ouvert)"));
+        }
+        request.setStream(true);
+        int estimatedTokens = estimateTokens(request);
+        StringBuilder content = new StringBuilder();
+        int[] totalTokens = {0};
+        return rateLimiter.acquire(estimatedTokens)
+                .thenMany(Flux.defer(() -> webClient.post()
+                        .uri("")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                        // Per-element timeout on the exchange only (not the wait in the rate limiter):
+                        // bounds the wait for the first chunk and any stall afterwards
+                        .timeout(REQUEST_TIMEOUT)))
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .concatMap(data -> {
+                    StreamChunk chunk = parseChunk(data);
+                    if (chunk.totalTokens > 0) {
+                        totalTokens[0] = chunk.totalTokens;
+                    }
+                    return Mono.justOrEmpty(chunk.content);
+                })
+                .doOnNext(content::append)
+                .doOnComplete(() -> {
+                    circuitBreaker.onSuccess();
+                    rateLimiter.recordUsage(estimatedTokens, totalTokens[0]);
+                    logger.info("Streamed response from Groq API completed. Tokens used: {}",
+                            totalTokens[0] > 0 ? totalTokens[0] : "N/A");
+                    if (content.length() > 0) {
+                        responseCache.store(cacheKey, model, content.toString(), totalTokens[0]);
+                    }
+                })
+                .doOnError(e -> {
+                    if (e instanceof WebClientResponseException responseException) {
+                        rateLimiter.updateFromHeaders(responseException.getHeaders());
+                    }
+                    if (isTransient(e)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onIgnored();
+                    }
+                    logger.error("Error streaming from Groq API: {}", e.getMessage());
+                })
+                .doOnCancel(circuitBreaker::onIgnored);
+    }
+    
+    private static final class StreamChunk {
+        private final String content;
+        private final int totalTokens;
+        
+        StreamChunk(String content, int totalTokens) {
+            this.content = content;
+            this.totalTokens = totalTokens;
+        }
+    }
+    
+    /**
+     * Delta content of one chat.completion.chunk, and the usage Groq attaches to the last chunk (x_groq.usage)
+     */
+    private StreamChunk parseChunk(String data) {
         try {
-            logger.debug("Sending request to Groq API with model: {}", model);
-            
-            GroqRequest.Message systemMessage = new GroqRequest.Message("system", systemPrompt);
-            GroqRequest.Message userMessage = new GroqRequest.Message("user", userPrompt);
-            
-            GroqRequest request = new GroqRequest(model, List.of(systemMessage, userMessage));
-            request.setTemperature(0.7);
-            request.setMaxTokens(1500);
-            
-            GroqResponse response = webClient.post()
-                    .uri("")  // Use empty URI since baseUrl is already set
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(GroqResponse.class)
-                    .retryWhen(Retry.fixedDelay(2, Duration.ofSeconds(2))
-                            .filter(throwable -> {
-                                logger.warn("Retrying Groq API call due to error: {}", throwable.getMessage());
-                                return true;
-                            }))
-                    .timeout(Duration.ofSeconds(30))
-                    .block();
-            
-            if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-                String content = response.getChoices().get(0).getMessage().getContent();
-                logger.info("Successfully received response from Groq API. Tokens used: {}", 
-                    response.getUsage() != null ? response.getUsage().getTotalTokens() : "N/A");
-                return content;
-            } else {
-                logger.error("Empty or invalid response from Groq API");
-                return "Erreur: Réponse vide de l'API Groq.";
+            JsonNode root = objectMapper.readTree(data);
+            String delta = root.path("choices").path(0).path("delta").path("content").asText(null);
+            int tokens = root.path("x_groq").path("usage").path("total_tokens").asInt(0);
+            if (tokens == 0) {
+                tokens = root.path("usage").path("total_tokens").asInt(0);
             }
-            
-        } catch (Exception e) {
-            logger.error("Error calling Groq API: {}", e.getMessage(), e);
-            return "Erreur lors de l'appel à l'API Groq: " + e.getMessage();
+            return new StreamChunk(delta != null && !delta.isEmpty() ? delta : null, tokens);
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring unparseable Groq stream chunk: {}", e.getMessage());
+            return new StreamChunk(null, 0);
+        }
+    }
+    
+    private GroqRequest buildRequest(String systemPrompt, String userPrompt) {
+        GroqRequest.Message systemMessage = new GroqRequest.Message("system", systemPrompt);
+        GroqRequest.Message userMessage = new GroqRequest.Message("user", userPrompt);
+        
+        GroqRequest request = new GroqRequest(model, List.of(systemMessage, userMessage));
+        request.setTemperature(0.7);
+        request.setMaxTokens(1500);
+        return request;
+    }
+    
+    private String cacheKey(GroqRequest request, String systemPrompt, String userPrompt) {
+        return responseCache.key(model, systemPrompt, userPrompt, request.getTemperature(), request.getMaxTokens());
+    }
+    
+    private Mono<String> callApi(GroqRequest request, String cacheKey) {
+        if (!circuitBreaker.tryAcquire()) {
+            // Starts with "Erreur" so that callers take their rule-based path straight away
+            return Mono.just("Erreur: API Groq temporairement indisponible (circuit ouvert).");
+        }
+        int estimatedTokens = estimateTokens(request);
+        return attempt(request, estimatedTokens, 0)
+                .doOnSuccess(response -> circuitBreaker.onSuccess())
+                .doOnError(e -> {
+                    if (isTransient(e)) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onIgnored();
+                    }
+                })
+                .doOnCancel(circuitBreaker::onIgnored)
+                .map(response -> {
+                    if (response.getChoices() != null && !response.getChoices().isEmpty()) {
+                        String content = response.getChoices().get(0).getMessage().getContent();
+                        logger.info("Successfully received response from Groq API. Tokens used: {}", 
+                            response.getUsage() != null ? response.getUsage().getTotalTokens() : "N/A");
+                        if (content != null) {
+                            responseCache.store(cacheKey, model, content,
+                                response.getUsage() != null ? response.getUsage().getTotalTokens() : 0);
+                        }
+                        return content;
+                    }
+                    logger.error("Empty or invalid response from Groq API");
+                    return "Erreur: Réponse vide de l'API Groq.";
+                })
+                .defaultIfEmpty("Erreur: Réponse vide de l'API Groq.")
+                .onErrorResume(e -> {
+                    logger.error("Error calling Groq API: {}", e.getMessage(), e);
+                    return Mono.just("Erreur lors de l'appel à l'API Groq: " + e.getMessage());
+                });
+    }
+    
+    /**
+     * One call through the rate limiter. The timeout covers the HTTP exchange only, not the time
+     * spent queued in the limiter.
+     */
+    private Mono<GroqResponse> attempt(GroqRequest request, int estimatedTokens, int retry) {
+        return rateLimiter.acquire(estimatedTokens)
+                .then(Mono.defer(() -> webClient.post()
+                        .uri("")  // Use empty URI since baseUrl is already set
+                        .bodyValue(request)
+                        .retrieve()
+                        .toEntity(GroqResponse.class)
+                        .timeout(REQUEST_TIMEOUT)))
+                .flatMap(entity -> {
+                    rateLimiter.updateFromHeaders(entity.getHeaders());
+                    GroqResponse response = entity.getBody();
+                    if (response != null && response.getUsage() != null) {
+                        rateLimiter.recordUsage(estimatedTokens, response.getUsage().getTotalTokens());
+                    }
+                    return Mono.justOrEmpty(response);
+                })
+                .onErrorResume(e -> {
+                    Duration delay = retryDelay(e, retry);
+                    if (delay == null) {
+                        return Mono.error(e);
+                    }
+                    logger.warn("Retrying Groq API call ({}/{}) in {} ms due to error: {}",
+                            retry + 1, MAX_RETRIES, delay.toMillis(), e.getMessage());
+                    return Mono.delay(delay).then(attempt(request, estimatedTokens, retry + 1));
+                });
+    }
+    
+    /**
+     * Delay before retrying a failed call, or null when the error is not worth retrying
+     */
+    private Duration retryDelay(Throwable e, int retry) {
+        if (e instanceof WebClientResponseException responseException) {
+            rateLimiter.updateFromHeaders(responseException.getHeaders());
+        }
+        // No point retrying once the breaker has opened: callers are already on the fallback
+        if (retry >= MAX_RETRIES || !isTransient(e) || circuitBreaker.getState() == GroqCircuitBreaker.State.OPEN) {
+            return null;
+        }
+        Duration backoff = RETRY_BACKOFF.multipliedBy(1L << retry);
+        if (e instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().value() == 429) {
+            Duration retryAfter = GroqRateLimiter.parseDuration(
+                    responseException.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            // The pause holds back every queued call, the retry then waits its turn in the limiter
+            rateLimiter.pause(retryAfter != null ? retryAfter : backoff);
+            return Duration.ZERO;
+        }
+        return backoff;
+    }
+    
+    /**
+     * Errors that say something about Groq's availability: 429, 5xx, timeouts and connection failures.
+     * Other 4xx would fail again identically and do not count against the circuit breaker.
+     */
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value() == 429
+                    || responseException.getStatusCode().is5xxServerError();
         }
+        return e instanceof TimeoutException || e instanceof WebClientRequestException;
+    }
+    
+    /**
+     * Upper bound of the tokens a request can consume: prompt (about 4 characters per token) plus max_tokens
+     */
+    private static int estimateTokens(GroqRequest request) {
+        int promptTokens = 0;
+        for (GroqRequest.Message message : request.getMessages()) {
+            promptTokens += AnalysisPromptBuilder.estimateTokens(message.getContent());
+        }
+        return promptTokens + request.getMaxTokens();
+    }
+    
+    /**
+     * Blocking adapter over {@link #generateResponseAsync(String, String)}, for callers on worker threads
+     */
+    public String generateResponse(String systemPrompt, String userPrompt) {
+        return generateResponseAsync(systemPrompt, userPrompt).block();
     }
     
     /**
      * Generate AI analysis for employee performance
      */
     public String analyzeEmployeePerformance(String employeeData, String kpiData) {
-        String systemPrompt = "Tu es un expert en analyse de performance RH et gestion des talents. " +
+        return analyzeEmployeePerformanceAsync(employeeData, kpiData).block();
+    }
+    
+    public Mono<String> analyzeEmployeePerformanceAsync(String employeeData, String kpiData) {
+        return generateResponseAsync(ANALYSIS_SYSTEM_PROMPT, analysisUserPrompt(employeeData, kpiData));
+    }
+    
+    /**
+     * Streaming variant of {@link #analyzeEmployeePerformanceAsync(String, String)}, same prompts (and cache entry)
+     */
+    public Flux<String> streamEmployeePerformanceAnalysis(String employeeData, String kpiData) {
+        return generateResponseStream(ANALYSIS_SYSTEM_PROMPT, analysisUserPrompt(employeeData, kpiData));
+    }
+    
+    private static final String ANALYSIS_SYSTEM_PROMPT = "Tu es un expert en analyse de performance RH et gestion des talents. " +
                 "Ton rôle est d'analyser les indicateurs de performance (KPIs) des employés et de fournir " +
                 "des analyses détaillées, objectives et constructives. Tu dois être précis, professionnel " +
                 "et fournir des insights actionnables pour la prise de décision managériale.";
-        
-        String userPrompt = String.format(
+    
+    private static String analysisUserPrompt(String employeeData, String kpiData) {
+        return String.format(
             "Analyse les performances de l'employé suivant en te basant sur ses données KPI:\n\n" +
             "=== Informations Employé ===\n%s\n\n" +
             "=== Données KPI ===\n%s\n\n" +
@@ -116,14 +352,16 @@ public class GroqService {
             "Sois précis, factuel et professionnel dans ton analyse.",
             employeeData, kpiData
         );
-        
-        return generateResponse(systemPrompt, userPrompt);
     }
     
     /**
      * Generate AI recommendations for employee improvement
      */
     public String generateRecommendations(String employeeData, String kpiData, String analysis) {
+        return generateRecommendationsAsync(employeeData, kpiData, analysis).block();
+    }
+    
+    public Mono<String> generateRecommendationsAsync(String employeeData, String kpiData, String analysis) {
         String systemPrompt = "Tu es un consultant RH expert en développement des talents et amélioration " +
                 "de la performance. Ton rôle est de fournir des recommandations concrètes, actionnables " +
                 "et personnalisées pour améliorer la performance des employés. Tes recommandations doivent " +
@@ -144,7 +382,7 @@ public class GroqService {
             employeeData, kpiData, analysis
         );
         
-        return generateResponse(systemPrompt, userPrompt);
+        return generateResponseAsync(systemPrompt, userPrompt);
     }
 }
 
@@ -1,5 +1,6 @@
 package com.entreprise.kpi_analysis_Backend.service;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
 import com.entreprise.kpi_analysis_Backend.dto.KPIMetricDTO;
 import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
 import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
@@ -8,9 +9,11 @@ import com.entreprise.kpi_analysis_Backend.repository.KPIRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -31,12 +34,19 @@ public class KPIMetricService {
         this.kpiRepository = kpiRepository;
     }
     
+    /**
+     * One keyset page of metrics (by id), optionally for one KPI and one metric type
+     */
     @Transactional(readOnly = true)
-    public List<KPIMetricDTO> getAllKPIMetrics() {
-        logger.debug("Fetching all KPI metrics from repository");
-        return kpiMetricRepository.findAll().stream()
+    public CursorPage<KPIMetricDTO> getKPIMetricsPage(String cursor, int size, Long kpiId,
+                                                      KPIMetric.MetricType metricType) {
+        logger.debug("Fetching KPI metrics page after cursor {} (size {}, KPI {}, type {})",
+                cursor, size, kpiId, metricType);
+        List<KPIMetricDTO> rows = kpiMetricRepository.findPage(CursorPage.decodeCursor(cursor), kpiId, metricType,
+                        PageRequest.of(0, size + 1)).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        return CursorPage.of(rows, size, KPIMetricDTO::getId);
     }
     
     @Transactional(readOnly = true)
@@ -77,6 +87,8 @@ public class KPIMetricService {
         metric.setValue(metricDTO.getValue());
         metric.setTargetValue(metricDTO.getTargetValue());
         metric.setUnit(metricDTO.getUnit());
+        // Metrics have no updatedAt: the KPI version (ETags, see KPIService) moves instead
+        metric.getKpi().setUpdatedAt(LocalDateTime.now());
         
         KPIMetric updatedMetric = kpiMetricRepository.save(metric);
         logger.info("KPI metric updated successfully with ID: {}", id);
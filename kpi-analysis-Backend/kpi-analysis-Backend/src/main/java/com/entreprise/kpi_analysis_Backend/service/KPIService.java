@@ -1,17 +1,27 @@
 package com.entreprise.kpi_analysis_Backend.service;
 
+import com.entreprise.kpi_analysis_Backend.dto.CursorPage;
+import com.entreprise.kpi_analysis_Backend.dto.KPIAnalysisDTO;
 import com.entreprise.kpi_analysis_Backend.dto.KPIDTO;
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
 import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
 import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
 import com.entreprise.kpi_analysis_Backend.repository.KPIRepository;
 import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+import com.entreprise.kpi_analysis_Backend.repository.KPIMetricRepository;
+import com.entreprise.kpi_analysis_Backend.repository.KPISummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -24,19 +34,57 @@ public class KPIService {
     private static final Logger logger = LoggerFactory.getLogger(KPIService.class);
     private final KPIRepository kpiRepository;
     private final EmployeeRepository employeeRepository;
+    private final KPIMetricRepository kpiMetricRepository;
     
     @Autowired
-    public KPIService(KPIRepository kpiRepository, EmployeeRepository employeeRepository) {
+    public KPIService(KPIRepository kpiRepository, EmployeeRepository employeeRepository,
+                      KPIMetricRepository kpiMetricRepository) {
         this.kpiRepository = kpiRepository;
         this.employeeRepository = employeeRepository;
+        this.kpiMetricRepository = kpiMetricRepository;
     }
     
+    /**
+     * One keyset page of KPIs (by id), optionally for one employee and periods within [from, to]
+     */
     @Transactional(readOnly = true)
-    public List<KPIDTO> getAllKPIs() {
-        logger.debug("Fetching all KPIs from repository");
-        return kpiRepository.findAll().stream()
-                .map(this::convertToDTO)
+    public CursorPage<KPIDTO> getKPIsPage(String cursor, int size, Long employeeId, LocalDate from, LocalDate to) {
+        logger.debug("Fetching KPIs page after cursor {} (size {}, employee {}, period {} - {})",
+                cursor, size, employeeId, from, to);
+        List<KPIDTO> rows = kpiRepository.findSummaryPage(CursorPage.decodeCursor(cursor), employeeId, from, to,
+                        PageRequest.of(0, size + 1)).stream()
+                .map(this::convertSummaryToDTO)
                 .collect(Collectors.toList());
+        return CursorPage.of(rows, size, KPIDTO::getId);
+    }
+    
+    /**
+     * Version of one page of the KPI list filtered like getKPIsPage, without loading the rows.
+     * The page (cursor, size) is part of the key: each page has its own ETag
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getKPIsVersion(String cursor, int size, Long employeeId, LocalDate from, LocalDate to) {
+        return ResourceVersion.of("kpis:" + employeeId + ":" + from + ":" + to + ":" + cursor + ":" + size,
+                kpiRepository.findVersionStamp(employeeId, from, to));
+    }
+    
+    /**
+     * Version of one KPI (and of its analysis). The analysisStale flag depends on all the
+     * employee's analysis inputs, so the version covers them, not only this row
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getKPIVersion(Long id) {
+        Long employeeId = kpiRepository.findEmployeeIdById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("KPI", id));
+        return analysisInputsVersion("kpi:" + id, employeeId);
+    }
+    
+    /**
+     * Version of the KPIs of an employee, including their analysisStale flags
+     */
+    @Transactional(readOnly = true)
+    public ResourceVersion getKPIsByEmployeeVersion(Long employeeId) {
+        return analysisInputsVersion("employee-kpis:" + employeeId, employeeId);
     }
     
     @Transactional(readOnly = true)
@@ -44,28 +92,81 @@ public class KPIService {
         logger.debug("Fetching KPI with ID: {}", id);
         KPI kpi = kpiRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("KPI", id));
-        return convertToDTO(kpi);
+        KPIDTO dto = convertToDTO(kpi);
+        String fingerprint = currentFingerprint(kpi.getEmployee().getId());
+        dto.setAnalysisStale(isAnalysisStale(kpi.getAiAnalysis() != null, kpi.getAnalysisFingerprint(), fingerprint));
+        return dto;
     }
     
+    /**
+     * Analysis texts of one KPI, for the views that display them
+     */
+    @Transactional(readOnly = true)
+    public KPIAnalysisDTO getKPIAnalysis(Long id) {
+        logger.debug("Fetching analysis of KPI with ID: {}", id);
+        KPI kpi = kpiRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("KPI", id));
+        String fingerprint = currentFingerprint(kpi.getEmployee().getId());
+        return new KPIAnalysisDTO(kpi.getId(), kpi.getAiAnalysis(), kpi.getAiRecommendations(),
+                isAnalysisStale(kpi.getAiAnalysis() != null, kpi.getAnalysisFingerprint(), fingerprint));
+    }
+    
+    /**
+     * KPIs of an employee without their analysis texts (see getKPIAnalysis)
+     */
     @Transactional(readOnly = true)
     public List<KPIDTO> getKPIsByEmployeeId(Long employeeId) {
         logger.debug("Fetching KPIs for employee ID: {}", employeeId);
-        return kpiRepository.findByEmployeeId(employeeId).stream()
-                .map(this::convertToDTO)
+        List<KPISummary> kpis = kpiRepository.findSummariesByEmployeeId(employeeId);
+        if (kpis.isEmpty()) {
+            return List.of();
+        }
+        // The analysis covers all the employee's KPIs: one fingerprint for the whole list
+        String fingerprint = currentFingerprint(employeeId, kpis);
+        return kpis.stream()
+                .map(kpi -> {
+                    KPIDTO dto = convertSummaryToDTO(kpi);
+                    dto.setAnalysisStale(isAnalysisStale(Boolean.TRUE.equals(kpi.getHasAnalysis()),
+                            kpi.getAnalysisFingerprint(), fingerprint));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
     
-    public KPIDTO createKPI(KPIDTO kpiDTO) {
+    /**
+     * Create the KPI, or update the one the employee already has for the period. On update, the
+     * score and analysis fields left null in the request keep their stored value
+     */
+    public UpsertResult createKPI(KPIDTO kpiDTO) {
         logger.debug("Creating new KPI for employee ID: {}", kpiDTO.getEmployeeId());
         // Verify employee exists
         if (!employeeRepository.existsById(kpiDTO.getEmployeeId())) {
             throw new ResourceNotFoundException("Employee", kpiDTO.getEmployeeId());
         }
         
+        // Upsert: a KPI is unique per employee and period
+        KPI existing = kpiRepository.findByEmployeeIdAndPeriodStartAndPeriodEnd(
+                kpiDTO.getEmployeeId(), kpiDTO.getPeriodStart(), kpiDTO.getPeriodEnd()).orElse(null);
+        if (existing != null) {
+            String analysis = kpiDTO.getAiAnalysis() != null ? kpiDTO.getAiAnalysis() : existing.getAiAnalysis();
+            String recommendations = kpiDTO.getAiRecommendations() != null
+                    ? kpiDTO.getAiRecommendations() : existing.getAiRecommendations();
+            if (kpiDTO.getOverallScore() != null) {
+                existing.setOverallScore(kpiDTO.getOverallScore());
+            }
+            clearFingerprintIfEdited(existing, analysis, recommendations);
+            existing.setAiAnalysis(analysis);
+            existing.setAiRecommendations(recommendations);
+            KPI updatedKPI = kpiRepository.save(existing);
+            logger.info("KPI already existed for employee {} and period, updated ID: {}", 
+                    kpiDTO.getEmployeeId(), updatedKPI.getId());
+            return new UpsertResult(convertToDTO(updatedKPI), false);
+        }
+        
         KPI kpi = convertToEntity(kpiDTO);
         KPI savedKPI = kpiRepository.save(kpi);
         logger.info("KPI created successfully with ID: {}", savedKPI.getId());
-        return convertToDTO(savedKPI);
+        return new UpsertResult(convertToDTO(savedKPI), true);
     }
     
     public KPIDTO updateKPI(Long id, KPIDTO kpiDTO) {
@@ -76,6 +177,7 @@ public class KPIService {
         kpi.setPeriodStart(kpiDTO.getPeriodStart());
         kpi.setPeriodEnd(kpiDTO.getPeriodEnd());
         kpi.setOverallScore(kpiDTO.getOverallScore());
+        clearFingerprintIfEdited(kpi, kpiDTO.getAiAnalysis(), kpiDTO.getAiRecommendations());
         kpi.setAiAnalysis(kpiDTO.getAiAnalysis());
         kpi.setAiRecommendations(kpiDTO.getAiRecommendations());
         
@@ -93,6 +195,64 @@ public class KPIService {
         logger.info("KPI deleted successfully with ID: {}", id);
     }
     
+    // Everything AnalysisFingerprint reads: the employee, its KPIs and their metrics
+    private ResourceVersion analysisInputsVersion(String resource, Long employeeId) {
+        return ResourceVersion.of(resource,
+                employeeRepository.findVersionStampById(employeeId),
+                kpiRepository.findVersionStamp(employeeId, null, null),
+                kpiMetricRepository.findVersionStampByEmployeeId(employeeId));
+    }
+    
+    private String currentFingerprint(Long employeeId) {
+        return currentFingerprint(employeeId, kpiRepository.findSummariesByEmployeeId(employeeId));
+    }
+    
+    /**
+     * Fingerprint of the employee's current analysis inputs (see AnalysisFingerprint), in three queries
+     * whatever the number of KPIs; the analysis texts are not loaded
+     */
+    private String currentFingerprint(Long employeeId, List<KPISummary> employeeKpis) {
+        Employee employee = employeeRepository.findById(employeeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Employee", employeeId));
+        Map<Long, List<KPIMetric>> metricsByKpi = kpiMetricRepository.findByKpiEmployeeId(employeeId).stream()
+                .collect(Collectors.groupingBy(metric -> metric.getKpi().getId()));
+        return AnalysisFingerprint.computeFromSummaries(employee, employeeKpis, metricsByKpi);
+    }
+    
+    // Stale when there is no analysis or its inputs changed since it was generated
+    private boolean isAnalysisStale(boolean hasAnalysis, String storedFingerprint, String currentFingerprint) {
+        return !hasAnalysis || !currentFingerprint.equals(storedFingerprint);
+    }
+    
+    // A hand-written analysis was not generated from the current inputs
+    private void clearFingerprintIfEdited(KPI kpi, String analysis, String recommendations) {
+        if (!Objects.equals(kpi.getAiAnalysis(), analysis)
+                || !Objects.equals(kpi.getAiRecommendations(), recommendations)) {
+            kpi.setAnalysisFingerprint(null);
+        }
+    }
+    
+    /**
+     * Outcome of createKPI: the KPI and whether it was created or an existing one updated
+     */
+    public static final class UpsertResult {
+        private final KPIDTO kpi;
+        private final boolean created;
+        
+        public UpsertResult(KPIDTO kpi, boolean created) {
+            this.kpi = kpi;
+            this.created = created;
+        }
+        
+        public KPIDTO getKpi() {
+            return kpi;
+        }
+        
+        public boolean isCreated() {
+            return created;
+        }
+    }
+    
     // Helper methods for conversion
     private KPIDTO convertToDTO(KPI kpi) {
         KPIDTO dto = new KPIDTO();
@@ -103,6 +263,19 @@ public class KPIService {
         dto.setOverallScore(kpi.getOverallScore());
         dto.setAiAnalysis(kpi.getAiAnalysis());
         dto.setAiRecommendations(kpi.getAiRecommendations());
+        dto.setHasAnalysis(kpi.getAiAnalysis() != null);
+        return dto;
+    }
+    
+    // List views: scalar columns only, the analysis texts stay null
+    private KPIDTO convertSummaryToDTO(KPISummary kpi) {
+        KPIDTO dto = new KPIDTO();
+        dto.setId(kpi.getId());
+        dto.setEmployeeId(kpi.getEmployeeId());
+        dto.setPeriodStart(kpi.getPeriodStart());
+        dto.setPeriodEnd(kpi.getPeriodEnd());
+        dto.setOverallScore(kpi.getOverallScore());
+        dto.setHasAnalysis(kpi.getHasAnalysis());
         return dto;
     }
     
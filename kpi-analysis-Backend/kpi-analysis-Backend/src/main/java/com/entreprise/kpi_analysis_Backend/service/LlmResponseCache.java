@@ -0,0 +1,185 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.LlmCacheEntry;
+import com.entreprise.kpi_analysis_Backend.repository.LlmCacheEntryRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed cache of Groq responses.
+ *
+ * The key is the SHA-256 of everything that determines the request (model, prompts,
+ * temperature, max tokens), so an unchanged employee re-analysed or a refreshed page
+ * reuses the previous answer. A bounded in-memory tier (size + TTL eviction) sits in
+ * front of an optional database tier that survives restarts.
+ *
+ * Metrics: groq.cache.requests{tier, result} for hit/miss rates and groq.cache.tokens.saved.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final LlmCacheEntryRepository repository;
+    private final boolean enabled;
+    private final boolean persistentEnabled;
+    private final Duration persistentTtl;
+    private final Cache<String, CachedResponse> memory;
+
+    private final Counter memoryHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+    private final Counter tokensSaved;
+
+    @Autowired
+    public LlmResponseCache(
+            LlmCacheEntryRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${groq.cache.enabled:true}") boolean enabled,
+            @Value("${groq.cache.max-entries:1000}") long maxEntries,
+            @Value("${groq.cache.ttl-minutes:1440}") long ttlMinutes,
+            @Value("${groq.cache.persistent.enabled:false}") boolean persistentEnabled,
+            @Value("${groq.cache.persistent.ttl-days:30}") long persistentTtlDays) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.persistentEnabled = persistentEnabled;
+        this.persistentTtl = Duration.ofDays(persistentTtlDays);
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "groq.responses");
+        this.memoryHits = Counter.builder("groq.cache.requests").tag("tier", "memory").tag("result", "hit")
+                .register(meterRegistry);
+        this.persistentHits = Counter.builder("groq.cache.requests").tag("tier", "database").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("groq.cache.requests").tag("tier", "none").tag("result", "miss")
+                .register(meterRegistry);
+        this.tokensSaved = Counter.builder("groq.cache.tokens.saved")
+                .description("Groq tokens not spent thanks to cache hits")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cache key of a request (hex SHA-256)
+     */
+    public String key(String model, String systemPrompt, String userPrompt, double temperature, int maxTokens) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // NUL-separated so that field boundaries are part of the hash
+            for (String part : new String[]{model, systemPrompt, userPrompt,
+                    Double.toString(temperature), Integer.toString(maxTokens)}) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Cached content for the key; empty on a miss. The database tier is read on the bounded elastic scheduler.
+     */
+    public Mono<String> lookup(String key) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        CachedResponse cached = memory.getIfPresent(key);
+        if (cached != null) {
+            memoryHits.increment();
+            tokensSaved.increment(cached.totalTokens);
+            return Mono.just(cached.content);
+        }
+        if (!persistentEnabled) {
+            misses.increment();
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> repository.findById(key))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(entry -> {
+                    if (entry.isEmpty() || isExpired(entry.get())) {
+                        misses.increment();
+                        return Mono.empty();
+                    }
+                    LlmCacheEntry hit = entry.get();
+                    int tokens = hit.getTotalTokens() != null ? hit.getTotalTokens() : 0;
+                    memory.put(key, new CachedResponse(hit.getContent(), tokens));
+                    persistentHits.increment();
+                    tokensSaved.increment(tokens);
+                    return Mono.just(hit.getContent());
+                })
+                .onErrorResume(e -> {
+                    logger.warn("LLM cache lookup failed, calling Groq: {}", e.getMessage());
+                    misses.increment();
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Store a successful response. The database write is fire-and-forget so callers never wait on it.
+     */
+    public void store(String key, String model, String content, int totalTokens) {
+        if (!enabled) {
+            return;
+        }
+        memory.put(key, new CachedResponse(content, totalTokens));
+        if (persistentEnabled) {
+            Mono.fromRunnable(() -> {
+                        LlmCacheEntry entry = new LlmCacheEntry();
+                        entry.setCacheKey(key);
+                        entry.setModel(model);
+                        entry.setContent(content);
+                        entry.setTotalTokens(totalTokens);
+                        repository.save(entry);
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(null, e -> logger.warn("Could not persist LLM cache entry: {}", e.getMessage()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${groq.cache.persistent.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!enabled || !persistentEnabled) {
+            return;
+        }
+        int deleted = repository.deleteCreatedBefore(LocalDateTime.now().minus(persistentTtl));
+        if (deleted > 0) {
+            logger.info("Purged {} expired LLM cache entries", deleted);
+        }
+    }
+
+    private boolean isExpired(LlmCacheEntry entry) {
+        return entry.getCreatedAt() != null && entry.getCreatedAt().isBefore(LocalDateTime.now().minus(persistentTtl));
+    }
+
+    private static final class CachedResponse {
+        private final String content;
+        private final int totalTokens;
+
+        CachedResponse(String content, int totalTokens) {
+            this.content = content;
+            this.totalTokens = totalTokens;
+        }
+    }
+}
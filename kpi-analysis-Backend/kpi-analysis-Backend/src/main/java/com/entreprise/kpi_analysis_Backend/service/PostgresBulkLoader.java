@@ -0,0 +1,405 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk-load path for uploads on PostgreSQL (opt-in with upload.bulk-load.enabled).
+ *
+ * Rows are resolved in Java exactly like the JPA path (same schema, parsing and target
+ * rules), then streamed through COPY into a temporary staging table. Employees, KPIs and
+ * metrics are merged from the staging table with a handful of set-based statements, all
+ * in one transaction. The JPA path in FileUploadService stays the portable fallback.
+ */
+@Component
+public class PostgresBulkLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresBulkLoader.class);
+
+    // Must match the allocationSize of the @SequenceGenerator on each entity
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String CREATE_STAGING =
+            "CREATE TEMP TABLE upload_staging (" +
+            "row_no bigint NOT NULL, first_name text, last_name text, email text, " +
+            "department text, position text, metric_type varchar(50), metric_value double precision, " +
+            "target_value double precision, employee_id bigint, kpi_id bigint) ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+            "COPY upload_staging (row_no, first_name, last_name, email, department, position, " +
+            "metric_type, metric_value, target_value) FROM STDIN WITH (FORMAT csv)";
+
+    // Existing employees by email, then by name for rows without email. Lowest ID wins, as in
+    // EmployeeResolutionIndex: the unique email constraint is case-sensitive, so several employees
+    // may share a lower(email), and a plain join would pick any of them
+    private static final String RESOLVE_BY_EMAIL =
+            "UPDATE upload_staging s SET employee_id = e.id " +
+            "FROM (SELECT lower(email) AS email, min(id) AS id FROM employees GROUP BY lower(email)) e " +
+            "WHERE s.employee_id IS NULL AND s.email <> '' AND e.email = lower(s.email)";
+
+    // One join against the employees grouped by name (a correlated subquery would scan them per staging row)
+    private static final String RESOLVE_BY_NAME =
+            "UPDATE upload_staging s SET employee_id = e.id " +
+            "FROM (SELECT lower(first_name) AS first_name, lower(last_name) AS last_name, min(id) AS id " +
+            "  FROM employees GROUP BY lower(first_name), lower(last_name)) e " +
+            "WHERE s.employee_id IS NULL AND coalesce(s.email, '') = '' " +
+            "AND e.first_name = lower(s.first_name) AND e.last_name = lower(s.last_name)";
+
+    // Same address as FileUploadService.generateEmail
+    private static final String GENERATE_EMAILS =
+            "UPDATE upload_staging SET email = regexp_replace(lower(first_name || '.' || last_name || '@example.com'), '\\s+', '.', 'g') " +
+            "WHERE employee_id IS NULL AND coalesce(email, '') = '' AND first_name <> '' AND last_name <> ''";
+
+    private static final String INSERT_EMPLOYEES =
+            "WITH candidates AS (" +
+            "  SELECT DISTINCT ON (lower(email)) email, first_name, last_name, department, position, row_no " +
+            "  FROM upload_staging WHERE employee_id IS NULL AND email <> '' AND first_name <> '' AND last_name <> '' " +
+            "  ORDER BY lower(email), row_no), " +
+            "numbered AS (SELECT c.*, row_number() OVER (ORDER BY row_no) - 1 AS rn FROM candidates c), " +
+            "blocks AS (SELECT b, nextval('employees_seq') AS hi " +
+            "  FROM generate_series(0, (SELECT (count(*) + " + (ALLOCATION_SIZE - 1) + ") / " + ALLOCATION_SIZE + " - 1 FROM numbered)) b) " +
+            "INSERT INTO employees (id, first_name, last_name, email, department, position, created_at, updated_at) " +
+            "SELECT " + idExpression() + ", n.first_name, n.last_name, n.email, " +
+            "  coalesce(nullif(n.department, ''), 'Non spécifié'), coalesce(nullif(n.position, ''), 'Non spécifié'), now(), now() " +
+            "FROM numbered n JOIN blocks ON blocks.b = n.rn / " + ALLOCATION_SIZE + " " +
+            "ON CONFLICT (email) DO NOTHING";
+
+    private static final String INSERT_KPIS =
+            "WITH candidates AS (" +
+            "  SELECT DISTINCT s.employee_id FROM upload_staging s WHERE s.employee_id IS NOT NULL " +
+            "  AND NOT EXISTS (SELECT 1 FROM kpis k WHERE k.employee_id = s.employee_id " +
+            "    AND k.period_start = ? AND k.period_end = ?)), " +
+            "numbered AS (SELECT c.*, row_number() OVER (ORDER BY employee_id) - 1 AS rn FROM candidates c), " +
+            "blocks AS (SELECT b, nextval('kpis_seq') AS hi " +
+            "  FROM generate_series(0, (SELECT (count(*) + " + (ALLOCATION_SIZE - 1) + ") / " + ALLOCATION_SIZE + " - 1 FROM numbered)) b) " +
+            "INSERT INTO kpis (id, employee_id, period_start, period_end, created_at, updated_at) " +
+            "SELECT " + idExpression() + ", n.employee_id, ?, ?, now(), now() " +
+            "FROM numbered n JOIN blocks ON blocks.b = n.rn / " + ALLOCATION_SIZE + " " +
+            "ON CONFLICT ON CONSTRAINT uk_kpis_employee_period DO NOTHING";
+
+    private static final String RESOLVE_KPIS =
+            "UPDATE upload_staging s SET kpi_id = k.id FROM kpis k " +
+            "WHERE k.employee_id = s.employee_id AND k.period_start = ? AND k.period_end = ?";
+
+    private static final String INSERT_METRICS =
+            "WITH numbered AS (SELECT s.*, row_number() OVER (ORDER BY row_no) - 1 AS rn FROM upload_staging s " +
+            "  WHERE s.kpi_id IS NOT NULL AND s.metric_type IS NOT NULL), " +
+            "blocks AS (SELECT b, nextval('kpi_metrics_seq') AS hi " +
+            "  FROM generate_series(0, (SELECT (count(*) + " + (ALLOCATION_SIZE - 1) + ") / " + ALLOCATION_SIZE + " - 1 FROM numbered)) b) " +
+            "INSERT INTO kpi_metrics (id, kpi_id, metric_type, metric_value, target_value, unit, created_at) " +
+            "SELECT " + idExpression() + ", n.kpi_id, n.metric_type, n.metric_value, n.target_value, '%', now() " +
+            "FROM numbered n JOIN blocks ON blocks.b = n.rn / " + ALLOCATION_SIZE;
+
+    // Outbox entries, committed with the merge (see AnalysisOutboxWorker)
+    private static final String INSERT_ANALYSIS_REQUESTS =
+            "INSERT INTO analysis_requests (kpi_id, employee_id, status, attempts, created_at, updated_at) " +
+            "SELECT DISTINCT s.kpi_id, s.employee_id, 'PENDING', 0, now(), now() FROM upload_staging s " +
+            "WHERE s.kpi_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM analysis_requests r " +
+            "  WHERE r.kpi_id = s.kpi_id AND r.status = 'PENDING')";
+
+    private static final String COUNT_ROWS =
+            "SELECT count(DISTINCT row_no) FROM upload_staging WHERE kpi_id IS NOT NULL";
+
+    // Rows left without employee, in file order; their staging lines share the same names
+    private static final String FAILED_ROWS =
+            "SELECT row_no, bool_or(coalesce(first_name, '') = '') AS missing_first_name FROM upload_staging " +
+            "WHERE kpi_id IS NULL GROUP BY row_no ORDER BY row_no";
+
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final UploadPipeline uploadPipeline;
+    private final boolean enabled;
+    private volatile Boolean postgres;
+
+    @Autowired
+    public PostgresBulkLoader(
+            DataSource dataSource,
+            EntityManagerFactory entityManagerFactory,
+            UploadPipeline uploadPipeline,
+            @Value("${upload.bulk-load.enabled:false}") boolean enabled) {
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+        this.uploadPipeline = uploadPipeline;
+        this.enabled = enabled;
+    }
+
+    /**
+     * True when bulk loading is enabled and the datasource is PostgreSQL
+     */
+    public boolean isAvailable() {
+        if (!enabled) {
+            return false;
+        }
+        if (postgres == null) {
+            try (Connection connection = dataSource.getConnection()) {
+                postgres = connection.isWrapperFor(PGConnection.class);
+            } catch (SQLException e) {
+                logger.warn("Could not detect PostgreSQL driver, bulk load disabled", e);
+                postgres = false;
+            }
+            if (!postgres) {
+                logger.info("upload.bulk-load.enabled is set but the datasource is not PostgreSQL, using JPA inserts");
+            }
+        }
+        return postgres;
+    }
+
+    /**
+     * Load all rows of the source for the given period in a single transaction
+     */
+    Result load(UploadPipeline.RowSource source, LocalDate periodStart, LocalDate periodEnd,
+                UploadProgress progress) throws Exception {
+        Result result = new Result();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING);
+                }
+
+                long copyStart = System.nanoTime();
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                try {
+                    StagingWriter writer = new StagingWriter(copyIn);
+                    result.pipelineStats = uploadPipeline.run(source, 0, writer, progress);
+                    result.rowsRead = writer.rowNumber;
+                    result.stagingRows = copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+                result.copyNanos = System.nanoTime() - copyStart;
+
+                long mergeStart = System.nanoTime();
+                merge(connection, periodStart, periodEnd, result);
+                connection.commit();
+                result.mergeNanos = System.nanoTime() - mergeStart;
+                // Plain JDBC writes do not invalidate Hibernate's cached query results
+                entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+            } catch (Exception e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        progress.rowsPersisted(result.employeesProcessed);
+        result.errors.forEach(error -> progress.rowFailed());
+        logger.info("Bulk load finished: {} rows, {} staging rows, {}", result.rowsRead, result.stagingRows, result.toMap());
+        return result;
+    }
+
+    private void merge(Connection connection, LocalDate periodStart, LocalDate periodEnd, Result result)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(RESOLVE_BY_EMAIL);
+            statement.executeUpdate(RESOLVE_BY_NAME);
+            statement.executeUpdate(GENERATE_EMAILS);
+            // A generated address may already belong to an employee
+            statement.executeUpdate(RESOLVE_BY_EMAIL);
+            result.employeesCreated = statement.executeUpdate(INSERT_EMPLOYEES);
+            statement.executeUpdate(RESOLVE_BY_EMAIL);
+        }
+
+        try (PreparedStatement insertKpis = connection.prepareStatement(INSERT_KPIS)) {
+            insertKpis.setObject(1, periodStart);
+            insertKpis.setObject(2, periodEnd);
+            insertKpis.setObject(3, periodStart);
+            insertKpis.setObject(4, periodEnd);
+            result.kpisCreated = insertKpis.executeUpdate();
+        }
+        try (PreparedStatement resolveKpis = connection.prepareStatement(RESOLVE_KPIS)) {
+            resolveKpis.setObject(1, periodStart);
+            resolveKpis.setObject(2, periodEnd);
+            resolveKpis.executeUpdate();
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            result.metricsCreated = statement.executeUpdate(INSERT_METRICS);
+            result.analysisRequested = statement.executeUpdate(INSERT_ANALYSIS_REQUESTS);
+            try (ResultSet counts = statement.executeQuery(COUNT_ROWS)) {
+                counts.next();
+                result.employeesProcessed = counts.getInt(1);
+            }
+            // Same message per rejected row, in the same order, as the JPA path. One difference remains:
+            // a row without names whose email belongs to an employee created by a later row of the
+            // file is attached to that employee here, and rejected by the JPA path
+            try (ResultSet failed = statement.executeQuery(FAILED_ROWS)) {
+                while (failed.next()) {
+                    result.errors.add(failed.getBoolean("missing_first_name")
+                            ? "Erreur lors du traitement de la ligne: Le prénom est requis pour créer un employé"
+                            : "Erreur lors du traitement de la ligne: Le nom est requis pour créer un employé");
+                }
+            }
+        }
+    }
+
+    /**
+     * ID taken from the block of ALLOCATION_SIZE values reserved by one nextval call:
+     * a pooled optimizer hands out [hi - ALLOCATION_SIZE + 1, hi], so Hibernate never uses them
+     */
+    private static String idExpression() {
+        return "blocks.hi - " + (ALLOCATION_SIZE - 1) + " + n.rn % " + ALLOCATION_SIZE;
+    }
+
+    /**
+     * Writer stage: resolves each row with the compiled schema and streams it to COPY as CSV.
+     * A row yields one staging line per parsed metric, or a single line without metric.
+     */
+    private static class StagingWriter implements UploadPipeline.BatchWriter {
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(64 * 1024);
+        private long rowNumber = 0;
+
+        StagingWriter(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        @Override
+        public void write(UploadRowSchema schema, List<String[]> rows, long lastRowNumber) {
+            for (String[] values : rows) {
+                rowNumber++;
+                Double targetValue = null;
+                boolean targetResolved = false;
+                boolean metricWritten = false;
+                for (UploadRowSchema.MetricColumn column : schema.metricColumns()) {
+                    String value = UploadRowSchema.value(values, column.getIndex());
+                    if (value == null || value.isEmpty()) {
+                        continue;
+                    }
+                    double doubleValue;
+                    try {
+                        doubleValue = UploadRowSchema.parseDouble(value);
+                    } catch (NumberFormatException e) {
+                        logger.warn("Could not parse value for column {}: {}", column.getName(), value);
+                        continue;
+                    }
+                    if (!targetResolved) {
+                        targetValue = schema.targetValue(values);
+                        targetResolved = true;
+                    }
+                    appendLine(schema, values, column.getMetricType().name(), doubleValue, targetValue);
+                    metricWritten = true;
+                }
+                if (!metricWritten) {
+                    appendLine(schema, values, null, null, null);
+                }
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.setLength(0);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY vers la table de staging impossible: " + e.getMessage(), e);
+            }
+        }
+
+        private void appendLine(UploadRowSchema schema, String[] values, String metricType,
+                                Double metricValue, Double targetValue) {
+            buffer.append(rowNumber).append(',');
+            appendText(schema.firstName(values)).append(',');
+            appendText(schema.lastName(values)).append(',');
+            appendText(schema.email(values)).append(',');
+            appendText(schema.department(values)).append(',');
+            appendText(schema.position(values)).append(',');
+            appendText(metricType).append(',');
+            if (metricValue != null) {
+                buffer.append(metricValue);
+            }
+            buffer.append(',');
+            if (targetValue != null) {
+                buffer.append(targetValue);
+            }
+            buffer.append('\n');
+        }
+
+        // Quoted so that an empty cell stays an empty string; an unquoted empty field is NULL
+        private StringBuilder appendText(String value) {
+            if (value == null) {
+                return buffer;
+            }
+            buffer.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    buffer.append('"');
+                }
+                buffer.append(c);
+            }
+            return buffer.append('"');
+        }
+    }
+
+    /**
+     * Counters and timings of one bulk load
+     */
+    static final class Result {
+        private long rowsRead;
+        private long stagingRows;
+        private int employeesCreated;
+        private int employeesProcessed;
+        private int kpisCreated;
+        private int metricsCreated;
+        private int analysisRequested;
+        private final List<String> errors = new ArrayList<>();
+        private long copyNanos;
+        private long mergeNanos;
+        private UploadPipeline.Stats pipelineStats;
+
+        long getRowsRead() {
+            return rowsRead;
+        }
+
+        int getEmployeesProcessed() {
+            return employeesProcessed;
+        }
+
+        int getKpisCreated() {
+            return kpisCreated;
+        }
+
+        int getMetricsCreated() {
+            return metricsCreated;
+        }
+
+        int getAnalysisRequested() {
+            return analysisRequested;
+        }
+
+        List<String> getErrors() {
+            return errors;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("copyMs", TimeUnit.NANOSECONDS.toMillis(copyNanos));
+            map.put("copyRowsPerSecond", copyNanos > 0 ? Math.round(stagingRows * 1_000_000_000.0 / copyNanos) : 0);
+            map.put("mergeMs", TimeUnit.NANOSECONDS.toMillis(mergeNanos));
+            map.put("employeesCreated", employeesCreated);
+            if (pipelineStats != null) {
+                map.putAll(pipelineStats.toMap());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.repository.VersionStamp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+
+/**
+ * Validators of a GET response, computed from version stamps before the body is built:
+ * an ETag (hash of the stamps) and, for single rows only, a Last-Modified date.
+ *
+ * Lists get no Last-Modified: deleting a row does not move any timestamp, only the count.
+ */
+public final class ResourceVersion {
+
+    private final String etag;
+    private final LocalDateTime lastModified;
+
+    private ResourceVersion(String etag, LocalDateTime lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Version of a resource built from several sets of rows (ETag only)
+     */
+    public static ResourceVersion of(String resource, VersionStamp... stamps) {
+        return new ResourceVersion(hash(resource, stamps), null);
+    }
+
+    /**
+     * Version of a single row, also valid for If-Modified-Since
+     */
+    public static ResourceVersion ofRow(String resource, VersionStamp stamp) {
+        return new ResourceVersion(hash(resource, stamp), stamp.getLastModified());
+    }
+
+    private static String hash(String resource, VersionStamp... stamps) {
+        StringBuilder sb = new StringBuilder(resource);
+        for (VersionStamp stamp : stamps) {
+            sb.append('|').append(stamp.getCount())
+                    .append('|').append(stamp.getMaxId())
+                    .append('|').append(stamp.getLastModified());
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Unquoted ETag value (WebRequest.checkNotModified adds the quotes)
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Epoch milliseconds for WebRequest.checkNotModified, -1 when there is no Last-Modified
+     */
+    public long getLastModifiedMillis() {
+        return lastModified != null ? lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
@@ -0,0 +1,18 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+/**
+ * Callback receiving the rows of an uploaded spreadsheet one at a time
+ */
+public interface SpreadsheetRowHandler {
+
+    /**
+     * Called once with the header row (trimmed column names)
+     */
+    void onHeader(String[] headers);
+
+    /**
+     * Called for every data row after the header, in file order.
+     * Missing trailing cells are not included in the array.
+     */
+    void onRow(String[] values);
+}
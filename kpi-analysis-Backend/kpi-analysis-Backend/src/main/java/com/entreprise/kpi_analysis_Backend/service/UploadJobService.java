@@ -0,0 +1,188 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.dto.FileUploadResponse;
+import com.entreprise.kpi_analysis_Backend.dto.UploadJobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Service running file uploads, either on the calling thread or as background jobs.
+ *
+ * The uploaded file is first stored in a temporary file, so the HTTP request can
+ * return as soon as the upload is received. Jobs run on the bounded
+ * uploadJobExecutor; their progress and final {@link FileUploadResponse} are kept
+ * in memory for the configured retention time.
+ */
+@Service
+public class UploadJobService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+    
+    private final FileUploadService fileUploadService;
+    private final ThreadPoolTaskExecutor uploadJobExecutor;
+    private final Duration retention;
+    // Synchronous uploads running at once: each holds a parser thread for as long as its request
+    private final Semaphore synchronousUploads;
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public UploadJobService(
+            FileUploadService fileUploadService,
+            @Qualifier("uploadJobExecutor") ThreadPoolTaskExecutor uploadJobExecutor,
+            @Value("${upload.jobs.retention-minutes:60}") long retentionMinutes,
+            @Value("${upload.pipeline.parser-threads:4}") int parserThreads) {
+        this.fileUploadService = fileUploadService;
+        this.uploadJobExecutor = uploadJobExecutor;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.synchronousUploads = new Semaphore(parserThreads);
+    }
+    
+    /**
+     * Process the file on the calling thread.
+     * Throws TaskRejectedException when upload.pipeline.parser-threads synchronous uploads are already running.
+     */
+    public FileUploadResponse processNow(MultipartFile file, LocalDate periodStart, LocalDate periodEnd) throws IOException {
+        if (!synchronousUploads.tryAcquire()) {
+            throw new TaskRejectedException("All parser threads for synchronous uploads are busy");
+        }
+        try {
+            Path storedFile = store(file);
+            try {
+                return fileUploadService.processFile(
+                    storedFile, file.getOriginalFilename(), periodStart, periodEnd, new UploadProgress());
+            } finally {
+                Files.deleteIfExists(storedFile);
+            }
+        } finally {
+            synchronousUploads.release();
+        }
+    }
+    
+    /**
+     * Store the file and queue it for background processing.
+     * Throws TaskRejectedException when the job queue is full.
+     */
+    public UploadJobStatus submit(MultipartFile file, LocalDate periodStart, LocalDate periodEnd) throws IOException {
+        purgeExpiredJobs();
+        
+        Path storedFile = store(file);
+        UploadJob job = new UploadJob(
+            UUID.randomUUID().toString(), file.getOriginalFilename(), storedFile, periodStart, periodEnd);
+        jobs.put(job.id, job);
+        
+        try {
+            uploadJobExecutor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            Files.deleteIfExists(storedFile);
+            throw e;
+        }
+        
+        logger.info("Upload job {} queued for file {}", job.id, job.fileName);
+        return job.toStatus();
+    }
+    
+    public Optional<UploadJobStatus> getJob(String jobId) {
+        UploadJob job = jobs.get(jobId);
+        return job != null ? Optional.of(job.toStatus()) : Optional.empty();
+    }
+    
+    private void run(UploadJob job) {
+        job.startedAt = LocalDateTime.now();
+        logger.info("Upload job {} started", job.id);
+        try {
+            FileUploadResponse response = fileUploadService.processFile(
+                job.storedFile, job.fileName, job.periodStart, job.periodEnd, job.progress);
+            job.result = response;
+            job.progress.setPhase(response.isSuccess() ? UploadProgress.Phase.COMPLETED : UploadProgress.Phase.FAILED);
+        } catch (Exception e) {
+            logger.error("Upload job {} failed", job.id, e);
+            job.result = new FileUploadResponse(false, "Erreur lors du traitement du fichier: " + e.getMessage());
+            job.progress.setPhase(UploadProgress.Phase.FAILED);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(job.storedFile);
+            } catch (IOException e) {
+                logger.warn("Could not delete stored upload {}", job.storedFile, e);
+            }
+        }
+        logger.info("Upload job {} finished with phase {}", job.id, job.progress.getPhase());
+    }
+    
+    private Path store(MultipartFile file) throws IOException {
+        String fileName = file.getOriginalFilename();
+        String suffix = fileName != null && fileName.lastIndexOf('.') >= 0
+            ? fileName.substring(fileName.lastIndexOf('.'))
+            : ".tmp";
+        Path storedFile = Files.createTempFile("kpi-upload-", suffix);
+        file.transferTo(storedFile);
+        return storedFile;
+    }
+    
+    private void purgeExpiredJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+    
+    /**
+     * In-memory state of one background upload
+     */
+    private static class UploadJob {
+        private final String id;
+        private final String fileName;
+        private final Path storedFile;
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final UploadProgress progress = new UploadProgress();
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile FileUploadResponse result;
+        
+        UploadJob(String id, String fileName, Path storedFile, LocalDate periodStart, LocalDate periodEnd) {
+            this.id = id;
+            this.fileName = fileName;
+            this.storedFile = storedFile;
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+        }
+        
+        UploadJobStatus toStatus() {
+            UploadJobStatus status = new UploadJobStatus();
+            status.setJobId(id);
+            status.setFileName(fileName);
+            status.setPeriodStart(periodStart);
+            status.setPeriodEnd(periodEnd);
+            status.setPhase(progress.getPhase().name());
+            status.setRowsParsed(progress.getRowsParsed());
+            status.setRowsPersisted(progress.getRowsPersisted());
+            status.setErrors(progress.getErrors());
+            status.setQueueDepth(progress.getQueueDepth());
+            status.setSubmittedAt(submittedAt);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setResult(result);
+            return status;
+        }
+    }
+}
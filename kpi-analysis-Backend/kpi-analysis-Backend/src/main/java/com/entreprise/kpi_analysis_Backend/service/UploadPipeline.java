@@ -0,0 +1,249 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Two-stage ingestion pipeline for uploads: parse → persist.
+ *
+ * The parser runs on the uploadParserExecutor and hands batches of rows to the
+ * calling thread through a bounded queue. The calling thread resolves and writes
+ * them in its chunk transactions. CPU-bound parsing and I/O-bound inserts overlap, and
+ * the bounded queue applies backpressure: the parser blocks when the writer falls behind.
+ *
+ * There is a single writer per upload because a persistence context is not
+ * thread-safe and employee creation must be serialized to honour the unique email.
+ */
+@Component
+public class UploadPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadPipeline.class);
+
+    // Marks the end of the stream (normal or failed)
+    private static final RowBatch END = new RowBatch(null, Collections.emptyList(), 0);
+
+    private final ThreadPoolTaskExecutor parserExecutor;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    @Autowired
+    public UploadPipeline(
+            @Qualifier("uploadParserExecutor") ThreadPoolTaskExecutor parserExecutor,
+            @Value("${upload.pipeline.queue-capacity:8}") int queueCapacity,
+            @Value("${upload.pipeline.batch-size:500}") int batchSize) {
+        this.parserExecutor = parserExecutor;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Source of spreadsheet rows (one of the streaming readers)
+     */
+    @FunctionalInterface
+    interface RowSource {
+        void read(SpreadsheetRowHandler handler) throws Exception;
+    }
+
+    /**
+     * Writer stage, called on the calling thread for each batch of non-empty rows.
+     * lastRowNumber is the 1-based number (after the header) of the last data row covered by the batch.
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        void write(UploadRowSchema schema, List<String[]> rows, long lastRowNumber);
+    }
+
+    /**
+     * Run the pipeline until the source is exhausted. Parser failures are rethrown here.
+     *
+     * @param skipRows Number of leading data rows to skip (already imported by a previous run)
+     */
+    Stats run(RowSource source, long skipRows, BatchWriter writer, UploadProgress progress) throws Exception {
+        BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Exception> parserFailure = new AtomicReference<>();
+        Stats stats = new Stats();
+        Producer producer = new Producer(queue, progress, stats, skipRows);
+
+        parserExecutor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                source.read(producer);
+                producer.flush();
+            } catch (CancellationException e) {
+                logger.debug("Upload parser stopped: writer finished early");
+            } catch (Exception e) {
+                parserFailure.set(e);
+            } finally {
+                stats.parserNanos = System.nanoTime() - start;
+                producer.close();
+            }
+        });
+
+        long start = System.nanoTime();
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                RowBatch batch = queue.take();
+                stats.writerIdleNanos += System.nanoTime() - waitStart;
+                progress.setQueueDepth(queue.size());
+                if (batch == END) {
+                    break;
+                }
+                writer.write(batch.schema, batch.rows, batch.lastRowNumber);
+                stats.rowsWritten += batch.rows.size();
+            }
+        } finally {
+            producer.cancelled = true;
+            queue.clear();
+            stats.writerNanos = System.nanoTime() - start;
+            progress.setQueueDepth(0);
+        }
+
+        if (parserFailure.get() != null) {
+            throw parserFailure.get();
+        }
+        logger.debug("Upload pipeline finished: {}", stats.toMap());
+        return stats;
+    }
+
+    /**
+     * Parser-side handler: skips empty rows and groups the others into batches
+     */
+    private class Producer implements SpreadsheetRowHandler {
+        private final BlockingQueue<RowBatch> queue;
+        private final UploadProgress progress;
+        private final Stats stats;
+        private final long skipRows;
+        private UploadRowSchema schema;
+        private List<String[]> current = new ArrayList<>(batchSize);
+        private long rowNumber = 0;
+        private volatile boolean cancelled = false;
+
+        Producer(BlockingQueue<RowBatch> queue, UploadProgress progress, Stats stats, long skipRows) {
+            this.queue = queue;
+            this.progress = progress;
+            this.stats = stats;
+            this.skipRows = skipRows;
+        }
+
+        @Override
+        public void onHeader(String[] headers) {
+            schema = UploadRowSchema.compile(headers);
+        }
+
+        @Override
+        public void onRow(String[] values) {
+            progress.rowParsed();
+            stats.rowsParsed++;
+            rowNumber++;
+            if (rowNumber <= skipRows || !hasData(values)) {
+                return;
+            }
+            current.add(values);
+            if (current.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!current.isEmpty()) {
+                put(new RowBatch(schema, current, rowNumber));
+                current = new ArrayList<>(batchSize);
+            }
+        }
+
+        void close() {
+            // The writer may have stopped, so never block forever on the end marker
+            try {
+                while (!cancelled && !queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+                    // Waiting for the writer to make room
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void put(RowBatch batch) {
+            long waitStart = System.nanoTime();
+            try {
+                while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            stats.parserBlockedNanos += System.nanoTime() - waitStart;
+            int depth = queue.size();
+            progress.setQueueDepth(depth);
+            stats.maxQueueDepth = Math.max(stats.maxQueueDepth, depth);
+        }
+
+        private boolean hasData(String[] values) {
+            int columns = Math.min(schema.columnCount(), values.length);
+            for (int j = 0; j < columns; j++) {
+                if (!values[j].isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class RowBatch {
+        private final UploadRowSchema schema;
+        private final List<String[]> rows;
+        private final long lastRowNumber;
+
+        RowBatch(UploadRowSchema schema, List<String[]> rows, long lastRowNumber) {
+            this.schema = schema;
+            this.rows = rows;
+            this.lastRowNumber = lastRowNumber;
+        }
+    }
+
+    /**
+     * Per-stage throughput and queue figures of one pipeline run
+     */
+    public static final class Stats {
+        private volatile long rowsParsed;
+        private volatile long rowsWritten;
+        private volatile long parserNanos;
+        private volatile long parserBlockedNanos;
+        private volatile long writerNanos;
+        private volatile long writerIdleNanos;
+        private volatile int maxQueueDepth;
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("parserRowsPerSecond", perSecond(rowsParsed, parserNanos));
+            map.put("parserBlockedMs", TimeUnit.NANOSECONDS.toMillis(parserBlockedNanos));
+            map.put("writerRowsPerSecond", perSecond(rowsWritten, writerNanos - writerIdleNanos));
+            map.put("writerIdleMs", TimeUnit.NANOSECONDS.toMillis(writerIdleNanos));
+            map.put("maxQueueDepth", maxQueueDepth);
+            return map;
+        }
+
+        private static long perSecond(long rows, long nanos) {
+            return nanos > 0 ? Math.round(rows * 1_000_000_000.0 / nanos) : 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of an upload, written by the processing thread and read by status requests
+ */
+public class UploadProgress {
+
+    public enum Phase {
+        QUEUED,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+
+    private volatile Phase phase = Phase.QUEUED;
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsPersisted = new AtomicLong();
+    private final AtomicInteger errors = new AtomicInteger();
+    private volatile int queueDepth = 0;
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public void setPhase(Phase phase) {
+        this.phase = phase;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Row batches waiting between the parser and the writer
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    void rowParsed() {
+        rowsParsed.incrementAndGet();
+    }
+
+    void rowsPersisted(long count) {
+        rowsPersisted.addAndGet(count);
+    }
+
+    void rowFailed() {
+        errors.incrementAndGet();
+    }
+}
@@ -0,0 +1,188 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column layout of an uploaded file, compiled once from its header row.
+ *
+ * Identity fields, metric columns and target columns are resolved to fixed
+ * column indices, so data rows are read by index without building a map or
+ * matching column names again.
+ */
+final class UploadRowSchema {
+
+    // Column name fragments recognised as metric types, checked in this order
+    private static final Map<String, KPIMetric.MetricType> METRIC_MAPPINGS = new LinkedHashMap<>();
+
+    static {
+        METRIC_MAPPINGS.put("attendance", KPIMetric.MetricType.ATTENDANCE);
+        METRIC_MAPPINGS.put("assiduité", KPIMetric.MetricType.ATTENDANCE);
+        METRIC_MAPPINGS.put("assiduite", KPIMetric.MetricType.ATTENDANCE);
+        METRIC_MAPPINGS.put("présence", KPIMetric.MetricType.ATTENDANCE);
+        METRIC_MAPPINGS.put("presence", KPIMetric.MetricType.ATTENDANCE);
+        METRIC_MAPPINGS.put("velocity", KPIMetric.MetricType.VELOCITY);
+        METRIC_MAPPINGS.put("vélocité", KPIMetric.MetricType.VELOCITY);
+        METRIC_MAPPINGS.put("velocite", KPIMetric.MetricType.VELOCITY);
+        METRIC_MAPPINGS.put("quality", KPIMetric.MetricType.QUALITY);
+        METRIC_MAPPINGS.put("qualité", KPIMetric.MetricType.QUALITY);
+        METRIC_MAPPINGS.put("qualite", KPIMetric.MetricType.QUALITY);
+        METRIC_MAPPINGS.put("productivity", KPIMetric.MetricType.PRODUCTIVITY);
+        METRIC_MAPPINGS.put("productivité", KPIMetric.MetricType.PRODUCTIVITY);
+        METRIC_MAPPINGS.put("productivite", KPIMetric.MetricType.PRODUCTIVITY);
+        METRIC_MAPPINGS.put("efficiency", KPIMetric.MetricType.EFFICIENCY);
+        METRIC_MAPPINGS.put("efficacité", KPIMetric.MetricType.EFFICIENCY);
+        METRIC_MAPPINGS.put("efficacite", KPIMetric.MetricType.EFFICIENCY);
+    }
+
+    private static final String[] TARGET_FRAGMENTS = {"target", "objectif", "goal"};
+
+    private final String[] headers;
+    private final int firstNameIndex;
+    private final int lastNameIndex;
+    private final int emailIndex;
+    private final int departmentIndex;
+    private final int positionIndex;
+    private final List<MetricColumn> metricColumns;
+    private final int[] targetIndices;
+
+    private UploadRowSchema(String[] headers) {
+        this.headers = headers;
+        this.firstNameIndex = indexOf(headers, "firstName", "first_name", "First Name", "Prénom", "prenom");
+        this.lastNameIndex = indexOf(headers, "lastName", "last_name", "Last Name", "Nom", "nom");
+        this.emailIndex = indexOf(headers, "email", "Email", "e-mail");
+        this.departmentIndex = indexOf(headers, "department", "Department", "Département", "departement", "Dept", "dept");
+        this.positionIndex = indexOf(headers, "position", "Position", "Poste", "poste", "Job", "job", "Role", "role");
+
+        List<MetricColumn> metrics = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+        for (int i = 0; i < headers.length; i++) {
+            String columnName = headers[i].toLowerCase(Locale.ROOT).trim();
+            for (Map.Entry<String, KPIMetric.MetricType> mapping : METRIC_MAPPINGS.entrySet()) {
+                if (columnName.contains(mapping.getKey())) {
+                    metrics.add(new MetricColumn(i, columnName, mapping.getValue()));
+                    break;
+                }
+            }
+            for (String fragment : TARGET_FRAGMENTS) {
+                if (columnName.contains(fragment)) {
+                    targets.add(i);
+                    break;
+                }
+            }
+        }
+        this.metricColumns = Collections.unmodifiableList(metrics);
+        this.targetIndices = targets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static UploadRowSchema compile(String[] headers) {
+        return new UploadRowSchema(headers);
+    }
+
+    int columnCount() {
+        return headers.length;
+    }
+
+    String firstName(String[] values) {
+        return value(values, firstNameIndex);
+    }
+
+    String lastName(String[] values) {
+        return value(values, lastNameIndex);
+    }
+
+    String email(String[] values) {
+        return value(values, emailIndex);
+    }
+
+    String department(String[] values) {
+        return value(values, departmentIndex);
+    }
+
+    String position(String[] values) {
+        return value(values, positionIndex);
+    }
+
+    List<MetricColumn> metricColumns() {
+        return metricColumns;
+    }
+
+    /**
+     * First parseable value among the target/objectif/goal columns, or null
+     */
+    Double targetValue(String[] values) {
+        for (int index : targetIndices) {
+            String value = value(values, index);
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            try {
+                return parseDouble(value);
+            } catch (NumberFormatException e) {
+                // Continue searching
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cell value at the given column, or null when the column is absent from the file or the row
+     */
+    static String value(String[] values, int index) {
+        if (index < 0 || index >= values.length || values[index] == null) {
+            return null;
+        }
+        return values[index].trim();
+    }
+
+    static double parseDouble(String value) {
+        return Double.parseDouble(value.trim().replace(",", "."));
+    }
+
+    /**
+     * Column index of the first alias present in the header (case-insensitive), or -1
+     */
+    private static int indexOf(String[] headers, String... aliases) {
+        for (String alias : aliases) {
+            for (int i = 0; i < headers.length; i++) {
+                if (headers[i].equalsIgnoreCase(alias)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A column holding values of one metric type
+     */
+    static final class MetricColumn {
+        private final int index;
+        private final String name;
+        private final KPIMetric.MetricType metricType;
+
+        MetricColumn(int index, String name, KPIMetric.MetricType metricType) {
+            this.index = index;
+            this.name = name;
+            this.metricType = metricType;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        KPIMetric.MetricType getMetricType() {
+            return metricType;
+        }
+    }
+}
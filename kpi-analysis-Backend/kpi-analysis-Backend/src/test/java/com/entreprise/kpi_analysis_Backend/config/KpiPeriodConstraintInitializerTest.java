@@ -0,0 +1,40 @@
+package com.entreprise.kpi_analysis_Backend.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KpiPeriodConstraintInitializerTest {
+
+	private static final Timestamp MARCH = Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 10, 0));
+	private static final Timestamp APRIL = Timestamp.valueOf(LocalDateTime.of(2025, 4, 1, 10, 0));
+
+	@Test
+	void keepsMostRecentlyUpdatedRow() {
+		List<KpiPeriodConstraintInitializer.Row> group = List.of(row(3, MARCH), row(8, APRIL), row(9, null));
+
+		assertEquals(8, KpiPeriodConstraintInitializer.keptRow(group).id);
+	}
+
+	@Test
+	void keepsLowestIdOnTie() {
+		List<KpiPeriodConstraintInitializer.Row> group = List.of(row(3, APRIL), row(8, APRIL));
+
+		assertEquals(3, KpiPeriodConstraintInitializer.keptRow(group).id);
+	}
+
+	@Test
+	void keepsLowestIdWhenNeverUpdated() {
+		List<KpiPeriodConstraintInitializer.Row> group = List.of(row(3, null), row(8, null));
+
+		assertEquals(3, KpiPeriodConstraintInitializer.keptRow(group).id);
+	}
+
+	private static KpiPeriodConstraintInitializer.Row row(long id, Timestamp updatedAt) {
+		return new KpiPeriodConstraintInitializer.Row(id, updatedAt);
+	}
+}
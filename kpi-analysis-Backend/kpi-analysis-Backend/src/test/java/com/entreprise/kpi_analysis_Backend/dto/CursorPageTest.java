@@ -0,0 +1,71 @@
+package com.entreprise.kpi_analysis_Backend.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CursorPageTest {
+
+	private static final Function<Long, Long> ID = id -> id;
+
+	@Test
+	void extraRowMeansMorePages() {
+		CursorPage<Long> page = CursorPage.of(List.of(3L, 7L, 9L), 2, ID);
+
+		assertEquals(List.of(3L, 7L), page.getItems());
+		assertEquals(2, page.getSize());
+		assertTrue(page.isHasMore());
+		// The next page starts after the last id returned, not after the extra row
+		assertEquals(7L, CursorPage.decodeCursor(page.getNextCursor()));
+	}
+
+	@Test
+	void exactlySizeRowsIsTheLastPage() {
+		CursorPage<Long> page = CursorPage.of(List.of(3L, 7L), 2, ID);
+
+		assertEquals(List.of(3L, 7L), page.getItems());
+		assertFalse(page.isHasMore());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void emptyPage() {
+		CursorPage<Long> page = CursorPage.of(List.of(), 50, ID);
+
+		assertEquals(0, page.getSize());
+		assertFalse(page.isHasMore());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void cursorRoundTrip() {
+		assertEquals(123456789L, CursorPage.decodeCursor(CursorPage.encodeCursor(123456789L)));
+	}
+
+	@Test
+	void missingCursorStartsAtTheBeginning() {
+		assertEquals(0L, CursorPage.decodeCursor(null));
+		assertEquals(0L, CursorPage.decodeCursor("  "));
+	}
+
+	@Test
+	void invalidCursorIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> CursorPage.decodeCursor("not a cursor!"));
+		// Valid base64, but not an id cursor
+		assertThrows(IllegalArgumentException.class, () -> CursorPage.decodeCursor(encode("123")));
+		assertThrows(IllegalArgumentException.class, () -> CursorPage.decodeCursor(encode("id:abc")));
+	}
+
+	private static String encode(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,172 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import com.entreprise.kpi_analysis_Backend.repository.KPISummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class AnalysisFingerprintTest {
+
+	private Employee employee;
+	private KPI january;
+	private KPI february;
+	private KPIMetric quality;
+	private KPIMetric velocity;
+	private KPIMetric attendance;
+
+	@BeforeEach
+	void setUp() {
+		employee = new Employee();
+		employee.setId(1L);
+		employee.setFirstName("Marie");
+		employee.setLastName("Curie");
+		employee.setEmail("marie.curie@example.com");
+		employee.setDepartment("R&D");
+		employee.setPosition("Ingénieure");
+		employee.setCreatedAt(LocalDateTime.of(2024, 1, 15, 9, 30));
+
+		january = kpi(10L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+		february = kpi(11L, LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28));
+		quality = metric(100L, january, KPIMetric.MetricType.QUALITY, 85.0, 90.0);
+		velocity = metric(101L, january, KPIMetric.MetricType.VELOCITY, 70.0, null);
+		attendance = metric(102L, february, KPIMetric.MetricType.ATTENDANCE, 98.0, 100.0);
+	}
+
+	@Test
+	void sameInputsGiveSameFingerprint() {
+		String first = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		String second = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+
+		assertEquals(first, second);
+		assertEquals(64, first.length());
+	}
+
+	@Test
+	void loadingOrderDoesNotMatter() {
+		String ordered = AnalysisFingerprint.compute(employee, List.of(january, february), Map.of(
+				10L, List.of(quality, velocity), 11L, List.of(attendance)));
+		String shuffled = AnalysisFingerprint.compute(employee, List.of(february, january), Map.of(
+				10L, List.of(velocity, quality), 11L, List.of(attendance)));
+
+		assertEquals(ordered, shuffled);
+	}
+
+	@Test
+	void metricValueChangeChangesFingerprint() {
+		String before = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		quality.setValue(86.0);
+
+		assertNotEquals(before, AnalysisFingerprint.compute(employee, List.of(january, february), metrics()));
+	}
+
+	@Test
+	void newMetricChangesFingerprint() {
+		String before = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		KPIMetric added = metric(103L, february, KPIMetric.MetricType.EFFICIENCY, 60.0, 80.0);
+
+		assertNotEquals(before, AnalysisFingerprint.compute(employee, List.of(january, february), Map.of(
+				10L, List.of(quality, velocity), 11L, List.of(attendance, added))));
+	}
+
+	@Test
+	void employeeFieldChangeChangesFingerprint() {
+		String before = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		employee.setPosition("Directrice de recherche");
+
+		assertNotEquals(before, AnalysisFingerprint.compute(employee, List.of(january, february), metrics()));
+	}
+
+	@Test
+	void fieldsOutsideThePromptDoNotChangeFingerprint() {
+		String before = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		// Written back by the analysis itself: must not make the KPI look stale
+		january.setAiAnalysis("Analyse");
+		january.setOverallScore(82.5);
+		january.setUpdatedAt(LocalDateTime.now());
+		employee.setUpdatedAt(LocalDateTime.now());
+
+		assertEquals(before, AnalysisFingerprint.compute(employee, List.of(january, february), metrics()));
+	}
+
+	@Test
+	void summariesGiveSameFingerprintAsEntities() {
+		String fromEntities = AnalysisFingerprint.compute(employee, List.of(january, february), metrics());
+		String fromSummaries = AnalysisFingerprint.computeFromSummaries(employee,
+				List.of(summary(january), summary(february)), metrics());
+
+		assertEquals(fromEntities, fromSummaries);
+	}
+
+	private Map<Long, List<KPIMetric>> metrics() {
+		return Map.of(10L, List.of(quality, velocity), 11L, List.of(attendance));
+	}
+
+	private KPI kpi(Long id, LocalDate start, LocalDate end) {
+		KPI kpi = new KPI();
+		kpi.setId(id);
+		kpi.setEmployee(employee);
+		kpi.setPeriodStart(start);
+		kpi.setPeriodEnd(end);
+		return kpi;
+	}
+
+	private static KPIMetric metric(Long id, KPI kpi, KPIMetric.MetricType type, Double value, Double target) {
+		KPIMetric metric = new KPIMetric();
+		metric.setId(id);
+		metric.setKpi(kpi);
+		metric.setMetricType(type);
+		metric.setValue(value);
+		metric.setTargetValue(target);
+		metric.setCreatedAt(LocalDateTime.of(2025, 3, 1, 8, 0));
+		return metric;
+	}
+
+	private static KPISummary summary(KPI kpi) {
+		return new KPISummary() {
+			@Override
+			public Long getId() {
+				return kpi.getId();
+			}
+
+			@Override
+			public Long getEmployeeId() {
+				return kpi.getEmployee().getId();
+			}
+
+			@Override
+			public LocalDate getPeriodStart() {
+				return kpi.getPeriodStart();
+			}
+
+			@Override
+			public LocalDate getPeriodEnd() {
+				return kpi.getPeriodEnd();
+			}
+
+			@Override
+			public Double getOverallScore() {
+				return kpi.getOverallScore();
+			}
+
+			@Override
+			public String getAnalysisFingerprint() {
+				return kpi.getAnalysisFingerprint();
+			}
+
+			@Override
+			public Boolean getHasAnalysis() {
+				return kpi.getAiAnalysis() != null;
+			}
+		};
+	}
+}
@@ -0,0 +1,51 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.exception.ResourceNotFoundException;
+import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static com.entreprise.kpi_analysis_Backend.service.ResourceVersionTest.stamp;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmployeeServiceTest {
+
+	private EmployeeRepository employeeRepository;
+	private EmployeeService employeeService;
+
+	@BeforeEach
+	void setUp() {
+		employeeRepository = mock(EmployeeRepository.class);
+		employeeService = new EmployeeService(employeeRepository);
+		when(employeeRepository.findVersionStamp(null)).thenReturn(stamp(120, 140, LocalDateTime.of(2025, 3, 1, 10, 0)));
+	}
+
+	@Test
+	void eachPageHasItsOwnEtag() {
+		String firstPage = employeeService.getEmployeesVersion(null, 50, null).getEtag();
+		String secondPage = employeeService.getEmployeesVersion("aWQ6NTA", 50, null).getEtag();
+		String largerPage = employeeService.getEmployeesVersion(null, 100, null).getEtag();
+
+		assertNotEquals(firstPage, secondPage);
+		assertNotEquals(firstPage, largerPage);
+	}
+
+	@Test
+	void samePageKeepsItsEtag() {
+		assertEquals(employeeService.getEmployeesVersion("aWQ6NTA", 50, null).getEtag(),
+				employeeService.getEmployeesVersion("aWQ6NTA", 50, null).getEtag());
+	}
+
+	@Test
+	void missingEmployeeHasNoVersion() {
+		when(employeeRepository.findVersionStampById(7L)).thenReturn(stamp(0, 0, null));
+
+		assertThrows(ResourceNotFoundException.class, () -> employeeService.getEmployeeVersion(7L));
+	}
+}
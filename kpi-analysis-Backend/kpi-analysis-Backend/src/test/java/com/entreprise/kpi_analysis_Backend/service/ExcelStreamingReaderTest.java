@@ -0,0 +1,116 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExcelStreamingReaderTest {
+
+	private File file;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (file != null) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	@Test
+	void formattedNumbersAreReadAsRawValues() throws Exception {
+		file = workbook(
+				new Object[]{"Email", "Qualité", "Productivité", "Présence", "Vélocité"},
+				new Object[]{"a@example.com", cell(0.85, "0%"), cell(1234.5, "#,##0.0"), cell(42.0, "0"), 3.25});
+
+		List<String[]> rows = read(file);
+
+		assertEquals(2, rows.size());
+		String[] values = rows.get(1);
+		assertEquals("a@example.com", values[0]);
+		assertEquals("0.85", values[1]);
+		assertEquals("1234.5", values[2]);
+		assertEquals("42", values[3]);
+		assertEquals("3.25", values[4]);
+	}
+
+	@Test
+	void percentCellParsesAsMetricValue() throws Exception {
+		file = workbook(
+				new Object[]{"Email", "Qualité"},
+				new Object[]{"a@example.com", cell(0.85, "0.0%")});
+
+		String value = UploadRowSchema.value(read(file).get(1), 1);
+
+		assertEquals(0.85, UploadRowSchema.parseDouble(value), 1e-9);
+	}
+
+	@Test
+	void emptyCellsKeepColumnPositions() throws Exception {
+		file = workbook(
+				new Object[]{"Email", "Qualité", "Présence"},
+				new Object[]{"a@example.com", null, 90.0});
+
+		String[] values = read(file).get(1);
+
+		assertEquals(3, values.length);
+		assertEquals("", values[1]);
+		assertEquals("90", values[2]);
+	}
+
+	private static List<String[]> read(File file) throws Exception {
+		List<String[]> rows = new ArrayList<>();
+		ExcelStreamingReader.read(file, new SpreadsheetRowHandler() {
+			@Override
+			public void onHeader(String[] headers) {
+				rows.add(headers);
+			}
+
+			@Override
+			public void onRow(String[] values) {
+				rows.add(values);
+			}
+		});
+		return rows;
+	}
+
+	private static Object[] cell(double value, String format) {
+		return new Object[]{value, format};
+	}
+
+	private static File workbook(Object[]... rows) throws Exception {
+		File file = Files.createTempFile("kpi-upload", ".xlsx").toFile();
+		try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+			Sheet sheet = workbook.createSheet("KPI");
+			for (int r = 0; r < rows.length; r++) {
+				Row row = sheet.createRow(r);
+				for (int c = 0; c < rows[r].length; c++) {
+					Object value = rows[r][c];
+					if (value instanceof String) {
+						row.createCell(c).setCellValue((String) value);
+					} else if (value instanceof Double) {
+						row.createCell(c).setCellValue((Double) value);
+					} else if (value instanceof Object[]) {
+						Object[] formatted = (Object[]) value;
+						CellStyle style = workbook.createCellStyle();
+						style.setDataFormat(workbook.createDataFormat().getFormat((String) formatted[1]));
+						row.createCell(c).setCellValue((Double) formatted[0]);
+						row.getCell(c).setCellStyle(style);
+					}
+				}
+			}
+			workbook.write(out);
+		}
+		return file;
+	}
+}
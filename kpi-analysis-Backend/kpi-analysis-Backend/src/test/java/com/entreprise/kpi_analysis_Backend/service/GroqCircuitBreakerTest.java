@@ -0,0 +1,124 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroqCircuitBreakerTest {
+
+	private MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void opensAfterConsecutiveFailures() {
+		GroqCircuitBreaker breaker = breaker(3, 60, 1);
+
+		fail(breaker, 2);
+		assertEquals(GroqCircuitBreaker.State.CLOSED, breaker.getState());
+		fail(breaker, 1);
+
+		assertEquals(GroqCircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(1.0, meterRegistry.counter("groq.circuit.transitions", "from", "CLOSED", "to", "OPEN").count());
+	}
+
+	@Test
+	void successResetsFailureCount() {
+		GroqCircuitBreaker breaker = breaker(3, 60, 1);
+
+		fail(breaker, 2);
+		assertTrue(breaker.tryAcquire());
+		breaker.onSuccess();
+		fail(breaker, 2);
+
+		assertEquals(GroqCircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void openCircuitRejectsCallsUntilCoolDown() {
+		GroqCircuitBreaker breaker = breaker(1, 60, 1);
+		fail(breaker, 1);
+
+		assertFalse(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(2.0, meterRegistry.counter("groq.circuit.rejected").count());
+	}
+
+	@Test
+	void halfOpenLetsOnlyTheProbesThrough() {
+		GroqCircuitBreaker breaker = breaker(1, 0, 2);
+		fail(breaker, 1);
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(GroqCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	void successfulProbeClosesTheCircuit() {
+		GroqCircuitBreaker breaker = breaker(1, 0, 1);
+		fail(breaker, 1);
+
+		assertTrue(breaker.tryAcquire());
+		breaker.onSuccess();
+
+		assertEquals(GroqCircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void failedProbeReopensTheCircuit() {
+		GroqCircuitBreaker breaker = breaker(1, 0, 1);
+		fail(breaker, 1);
+
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure();
+
+		assertEquals(GroqCircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(1.0, meterRegistry.counter("groq.circuit.transitions", "from", "HALF_OPEN", "to", "OPEN").count());
+	}
+
+	@Test
+	void ignoredProbeReleasesItsPermit() {
+		GroqCircuitBreaker breaker = breaker(1, 0, 1);
+		fail(breaker, 1);
+
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.onIgnored();
+
+		assertEquals(GroqCircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	void disabledBreakerNeverOpens() {
+		GroqCircuitBreaker breaker = new GroqCircuitBreaker(meterRegistry, false, 1, 60, 1);
+
+		fail(breaker, 5);
+
+		assertEquals(GroqCircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	private GroqCircuitBreaker breaker(int failureThreshold, long openSeconds, int probes) {
+		return new GroqCircuitBreaker(meterRegistry, true, failureThreshold, openSeconds, probes);
+	}
+
+	private static void fail(GroqCircuitBreaker breaker, int times) {
+		for (int i = 0; i < times; i++) {
+			breaker.tryAcquire();
+			breaker.onFailure();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroqRateLimiterTest {
+
+	@Test
+	void callsWithinBudgetDoNotWait() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 30, 6000);
+
+		assertEquals(Duration.ZERO, limiter.reserve(1000));
+		assertEquals(Duration.ZERO, limiter.reserve(1000));
+	}
+
+	@Test
+	void exhaustedRequestBucketQueuesCallsInOrder() {
+		// 2 requests per minute: one refilled every 30 s
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 2, 100_000);
+		limiter.reserve(1);
+		limiter.reserve(1);
+
+		Duration third = limiter.reserve(1);
+		Duration fourth = limiter.reserve(1);
+
+		assertBetween(third, 29, 30);
+		assertBetween(fourth, 59, 60);
+	}
+
+	@Test
+	void waitCoversMissingTokens() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+		limiter.reserve(1000);
+
+		// 500 tokens at 1000 per minute
+		assertBetween(limiter.reserve(500), 29, 30);
+	}
+
+	@Test
+	void estimateLargerThanBudgetIsCapped() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+
+		assertEquals(Duration.ZERO, limiter.reserve(5000));
+	}
+
+	@Test
+	void bucketsRefillOverTime() throws Exception {
+		// 600 requests per minute: one every 100 ms
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 600, 1_000_000);
+		for (int i = 0; i < 600; i++) {
+			limiter.reserve(1);
+		}
+		assertTrue(limiter.reserve(1).toMillis() > 0);
+
+		Thread.sleep(300);
+
+		assertEquals(Duration.ZERO, limiter.reserve(1));
+	}
+
+	@Test
+	void unusedTokensAreGivenBack() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+		limiter.reserve(1000);
+
+		limiter.recordUsage(1000, 200);
+
+		assertEquals(Duration.ZERO, limiter.reserve(700));
+	}
+
+	@Test
+	void remainingHeaderLowersTheBucket() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("x-ratelimit-remaining-tokens", "0");
+
+		limiter.updateFromHeaders(headers);
+
+		assertTrue(limiter.reserve(100).toMillis() > 0);
+	}
+
+	@Test
+	void higherRemainingHeaderIsIgnored() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+		limiter.reserve(1000);
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("x-ratelimit-remaining-tokens", "1000");
+
+		limiter.updateFromHeaders(headers);
+
+		assertTrue(limiter.reserve(500).toMillis() > 0);
+	}
+
+	@Test
+	void pauseDelaysEveryCall() {
+		GroqRateLimiter limiter = new GroqRateLimiter(true, 100, 1000);
+
+		limiter.pause(Duration.ofSeconds(10));
+
+		assertBetween(limiter.reserve(1), 9, 10);
+	}
+
+	@Test
+	void disabledLimiterNeverDelays() {
+		GroqRateLimiter limiter = new GroqRateLimiter(false, 1, 1);
+
+		limiter.pause(Duration.ofSeconds(10));
+
+		assertNull(limiter.acquire(100).block());
+	}
+
+	@Test
+	void durationsInGroqFormats() {
+		assertEquals(Duration.ofSeconds(2), GroqRateLimiter.parseDuration("2"));
+		assertEquals(Duration.ofMillis(7660), GroqRateLimiter.parseDuration("7.66s"));
+		assertEquals(Duration.ofMillis(90_500), GroqRateLimiter.parseDuration("1m30.5s"));
+		assertEquals(Duration.ofMillis(120), GroqRateLimiter.parseDuration("120ms"));
+		assertEquals(Duration.ofHours(1).plusMinutes(2), GroqRateLimiter.parseDuration("1h2m"));
+		assertNull(GroqRateLimiter.parseDuration("soon"));
+		assertNull(GroqRateLimiter.parseDuration(" "));
+	}
+
+	private static void assertBetween(Duration wait, long minSeconds, long maxSeconds) {
+		assertTrue(wait.compareTo(Duration.ofSeconds(minSeconds)) >= 0 && wait.compareTo(Duration.ofSeconds(maxSeconds)) <= 0,
+				"expected a wait between " + minSeconds + " and " + maxSeconds + " s but was " + wait);
+	}
+}
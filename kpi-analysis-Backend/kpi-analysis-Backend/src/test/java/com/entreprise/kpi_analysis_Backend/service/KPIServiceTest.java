@@ -0,0 +1,91 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.dto.KPIDTO;
+import com.entreprise.kpi_analysis_Backend.entity.Employee;
+import com.entreprise.kpi_analysis_Backend.entity.KPI;
+import com.entreprise.kpi_analysis_Backend.repository.EmployeeRepository;
+import com.entreprise.kpi_analysis_Backend.repository.KPIMetricRepository;
+import com.entreprise.kpi_analysis_Backend.repository.KPIRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KPIServiceTest {
+
+	private static final LocalDate START = LocalDate.of(2025, 3, 1);
+	private static final LocalDate END = LocalDate.of(2025, 3, 31);
+
+	private KPIRepository kpiRepository;
+	private KPIService kpiService;
+	private KPI existing;
+
+	@BeforeEach
+	void setUp() {
+		kpiRepository = mock(KPIRepository.class);
+		EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+		kpiService = new KPIService(kpiRepository, employeeRepository, mock(KPIMetricRepository.class));
+
+		Employee employee = new Employee();
+		employee.setId(1L);
+		existing = new KPI();
+		existing.setId(10L);
+		existing.setEmployee(employee);
+		existing.setPeriodStart(START);
+		existing.setPeriodEnd(END);
+		existing.setOverallScore(82.0);
+		existing.setAiAnalysis("Analyse existante");
+		existing.setAiRecommendations("Recommandations existantes");
+		existing.setAnalysisFingerprint("abc");
+
+		when(employeeRepository.existsById(1L)).thenReturn(true);
+		when(kpiRepository.findByEmployeeIdAndPeriodStartAndPeriodEnd(1L, START, END)).thenReturn(Optional.of(existing));
+		when(kpiRepository.save(existing)).thenReturn(existing);
+	}
+
+	@Test
+	void upsertOfExistingPeriodIsNotACreation() {
+		KPIService.UpsertResult result = kpiService.createKPI(request(90.0, null, null));
+
+		assertFalse(result.isCreated());
+		assertEquals(10L, result.getKpi().getId());
+		assertEquals(90.0, result.getKpi().getOverallScore());
+	}
+
+	@Test
+	void upsertKeepsAnalysisLeftOutOfTheRequest() {
+		kpiService.createKPI(request(null, null, null));
+
+		assertEquals("Analyse existante", existing.getAiAnalysis());
+		assertEquals("Recommandations existantes", existing.getAiRecommendations());
+		assertEquals(82.0, existing.getOverallScore());
+		assertEquals("abc", existing.getAnalysisFingerprint());
+	}
+
+	@Test
+	void upsertWithEditedAnalysisClearsFingerprint() {
+		kpiService.createKPI(request(null, "Analyse corrigée", null));
+
+		assertEquals("Analyse corrigée", existing.getAiAnalysis());
+		assertEquals("Recommandations existantes", existing.getAiRecommendations());
+		assertNull(existing.getAnalysisFingerprint());
+	}
+
+	private static KPIDTO request(Double score, String analysis, String recommendations) {
+		KPIDTO dto = new KPIDTO();
+		dto.setEmployeeId(1L);
+		dto.setPeriodStart(START);
+		dto.setPeriodEnd(END);
+		dto.setOverallScore(score);
+		dto.setAiAnalysis(analysis);
+		dto.setAiRecommendations(recommendations);
+		return dto;
+	}
+}
@@ -0,0 +1,110 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.LlmCacheEntry;
+import com.entreprise.kpi_analysis_Backend.repository.LlmCacheEntryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LlmResponseCacheTest {
+
+	private LlmCacheEntryRepository repository;
+	private MeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		repository = mock(LlmCacheEntryRepository.class);
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void keyDependsOnEveryRequestField() {
+		LlmResponseCache cache = cache(true, false);
+		String key = cache.key("llama", "system", "user", 0.7, 1000);
+
+		assertEquals(64, key.length());
+		assertEquals(key, cache.key("llama", "system", "user", 0.7, 1000));
+		assertNotEquals(key, cache.key("mixtral", "system", "user", 0.7, 1000));
+		assertNotEquals(key, cache.key("llama", "system!", "user", 0.7, 1000));
+		assertNotEquals(key, cache.key("llama", "system", "user!", 0.7, 1000));
+		assertNotEquals(key, cache.key("llama", "system", "user", 0.2, 1000));
+		assertNotEquals(key, cache.key("llama", "system", "user", 0.7, 500));
+	}
+
+	@Test
+	void fieldBoundariesArePartOfTheKey() {
+		LlmResponseCache cache = cache(true, false);
+
+		assertNotEquals(cache.key("llama", "ab", "c", 0.7, 1000), cache.key("llama", "a", "bc", 0.7, 1000));
+	}
+
+	@Test
+	void storedResponseIsServedFromMemory() {
+		LlmResponseCache cache = cache(true, false);
+		String key = cache.key("llama", "system", "user", 0.7, 1000);
+
+		cache.store(key, "llama", "Analyse", 420);
+
+		assertEquals("Analyse", cache.lookup(key).block());
+		assertEquals(1.0, meterRegistry.counter("groq.cache.requests", "tier", "memory", "result", "hit").count());
+		assertEquals(420.0, meterRegistry.counter("groq.cache.tokens.saved").count());
+	}
+
+	@Test
+	void unknownKeyIsAMiss() {
+		LlmResponseCache cache = cache(true, false);
+
+		assertNull(cache.lookup("unknown").block());
+		assertEquals(1.0, meterRegistry.counter("groq.cache.requests", "tier", "none", "result", "miss").count());
+	}
+
+	@Test
+	void disabledCacheStoresNothing() {
+		LlmResponseCache cache = cache(false, false);
+
+		cache.store("key", "llama", "Analyse", 420);
+
+		assertNull(cache.lookup("key").block());
+	}
+
+	@Test
+	void databaseHitIsServed() {
+		when(repository.findById("key")).thenReturn(Optional.of(entry("Analyse", LocalDateTime.now().minusDays(1))));
+		LlmResponseCache cache = cache(true, true);
+
+		assertEquals("Analyse", cache.lookup("key").block());
+		assertEquals(1.0, meterRegistry.counter("groq.cache.requests", "tier", "database", "result", "hit").count());
+	}
+
+	@Test
+	void expiredDatabaseEntryIsAMiss() {
+		when(repository.findById("key")).thenReturn(Optional.of(entry("Analyse", LocalDateTime.now().minusDays(31))));
+		LlmResponseCache cache = cache(true, true);
+
+		assertNull(cache.lookup("key").block());
+	}
+
+	private LlmResponseCache cache(boolean enabled, boolean persistentEnabled) {
+		return new LlmResponseCache(repository, meterRegistry, enabled, 100, 60, persistentEnabled, 30);
+	}
+
+	private static LlmCacheEntry entry(String content, LocalDateTime createdAt) {
+		LlmCacheEntry entry = new LlmCacheEntry();
+		entry.setCacheKey("key");
+		entry.setModel("llama");
+		entry.setContent(content);
+		entry.setTotalTokens(420);
+		entry.setCreatedAt(createdAt);
+		return entry;
+	}
+}
@@ -0,0 +1,97 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.repository.VersionStamp;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceVersionTest {
+
+	private static final LocalDateTime UPDATED = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+
+	@Test
+	void sameStampsGiveSameEtag() {
+		assertEquals(ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag(),
+				ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag());
+	}
+
+	@Test
+	void etagIsUnquotedHex() {
+		String etag = ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag();
+
+		assertEquals(32, etag.length());
+		assertTrue(etag.matches("[0-9a-f]+"), etag);
+	}
+
+	@Test
+	void deletionChangesEtag() {
+		assertNotEquals(ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag(),
+				ResourceVersion.of("kpis", stamp(2, 12, UPDATED)).getEtag());
+	}
+
+	@Test
+	void insertionChangesEtag() {
+		// Delete one row and insert another: same count, higher max id
+		assertNotEquals(ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag(),
+				ResourceVersion.of("kpis", stamp(3, 13, UPDATED)).getEtag());
+	}
+
+	@Test
+	void updateChangesEtag() {
+		assertNotEquals(ResourceVersion.of("kpis", stamp(3, 12, UPDATED)).getEtag(),
+				ResourceVersion.of("kpis", stamp(3, 12, UPDATED.plusNanos(1000))).getEtag());
+	}
+
+	@Test
+	void resourceKeyIsPartOfEtag() {
+		VersionStamp stamp = stamp(3, 12, UPDATED);
+
+		assertNotEquals(ResourceVersion.of("kpi:1", stamp).getEtag(), ResourceVersion.of("kpi:2", stamp).getEtag());
+	}
+
+	@Test
+	void everyStampIsPartOfEtag() {
+		VersionStamp employee = stamp(1, 1, UPDATED);
+
+		assertNotEquals(ResourceVersion.of("kpi:1", employee, stamp(3, 12, UPDATED)).getEtag(),
+				ResourceVersion.of("kpi:1", employee, stamp(4, 13, UPDATED)).getEtag());
+	}
+
+	@Test
+	void rowVersionHasLastModified() {
+		ResourceVersion version = ResourceVersion.ofRow("employee:1", stamp(1, 1, UPDATED));
+
+		assertEquals(UPDATED.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+				version.getLastModifiedMillis());
+	}
+
+	@Test
+	void listVersionHasNoLastModified() {
+		assertEquals(-1, ResourceVersion.of("employees", stamp(5, 9, UPDATED)).getLastModifiedMillis());
+		assertEquals(-1, ResourceVersion.ofRow("employee:1", stamp(1, 1, null)).getLastModifiedMillis());
+	}
+
+	static VersionStamp stamp(long count, long maxId, LocalDateTime lastModified) {
+		return new VersionStamp() {
+			@Override
+			public Long getCount() {
+				return count;
+			}
+
+			@Override
+			public Long getMaxId() {
+				return count > 0 ? maxId : null;
+			}
+
+			@Override
+			public LocalDateTime getLastModified() {
+				return lastModified;
+			}
+		};
+	}
+}
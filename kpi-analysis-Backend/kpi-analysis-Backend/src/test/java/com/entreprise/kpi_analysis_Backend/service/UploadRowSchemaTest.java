@@ -0,0 +1,75 @@
+package com.entreprise.kpi_analysis_Backend.service;
+
+import com.entreprise.kpi_analysis_Backend.entity.KPIMetric;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadRowSchemaTest {
+
+	@Test
+	void identityColumnsResolvedByAlias() {
+		UploadRowSchema schema = UploadRowSchema.compile(
+				new String[]{"Email", "PRÉNOM", "Nom", "Département", "Poste"});
+		String[] row = {" marie@example.com ", "Marie", "Curie", "R&D", "Ingénieure"};
+
+		assertEquals("Marie", schema.firstName(row));
+		assertEquals("Curie", schema.lastName(row));
+		assertEquals("marie@example.com", schema.email(row));
+		assertEquals("R&D", schema.department(row));
+		assertEquals("Ingénieure", schema.position(row));
+	}
+
+	@Test
+	void missingColumnReadsAsNull() {
+		UploadRowSchema schema = UploadRowSchema.compile(new String[]{"firstName", "lastName"});
+		String[] row = {"Marie", "Curie"};
+
+		assertNull(schema.email(row));
+		assertNull(schema.department(row));
+	}
+
+	@Test
+	void shortRowReadsAsNull() {
+		UploadRowSchema schema = UploadRowSchema.compile(new String[]{"firstName", "lastName", "email"});
+
+		assertNull(schema.email(new String[]{"Marie", "Curie"}));
+	}
+
+	@Test
+	void metricColumnsMatchedByFragmentInColumnOrder() {
+		UploadRowSchema schema = UploadRowSchema.compile(new String[]{
+				"Email", "Taux de présence", "Quality score", "Vélocité", "Productivity", "Efficacite", "Commentaire"});
+
+		List<UploadRowSchema.MetricColumn> columns = schema.metricColumns();
+
+		assertEquals(5, columns.size());
+		assertEquals(1, columns.get(0).getIndex());
+		assertEquals(KPIMetric.MetricType.ATTENDANCE, columns.get(0).getMetricType());
+		assertEquals("taux de présence", columns.get(0).getName());
+		assertEquals(KPIMetric.MetricType.QUALITY, columns.get(1).getMetricType());
+		assertEquals(KPIMetric.MetricType.VELOCITY, columns.get(2).getMetricType());
+		assertEquals(KPIMetric.MetricType.PRODUCTIVITY, columns.get(3).getMetricType());
+		assertEquals(KPIMetric.MetricType.EFFICIENCY, columns.get(4).getMetricType());
+	}
+
+	@Test
+	void targetIsFirstParseableTargetColumn() {
+		UploadRowSchema schema = UploadRowSchema.compile(new String[]{"Email", "Target", "Objectif", "Goal"});
+
+		assertEquals(80.0, schema.targetValue(new String[]{"a@example.com", "n/a", "80", "90"}));
+		assertEquals(90.0, schema.targetValue(new String[]{"a@example.com", "", "", "90"}));
+		assertNull(schema.targetValue(new String[]{"a@example.com", "", "n/a"}));
+	}
+
+	@Test
+	void decimalCommaIsAccepted() {
+		assertEquals(85.5, UploadRowSchema.parseDouble(" 85,5 "), 1e-9);
+		assertEquals(0.85, UploadRowSchema.parseDouble("0.85"), 1e-9);
+		assertThrows(NumberFormatException.class, () -> UploadRowSchema.parseDouble("85%"));
+	}
+}